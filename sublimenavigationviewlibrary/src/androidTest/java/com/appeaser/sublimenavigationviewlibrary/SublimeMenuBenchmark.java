@@ -0,0 +1,482 @@
+package com.appeaser.sublimenavigationviewlibrary;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import java.util.List;
+
+/**
+ * Benchmarks for building &amp; updating large menus at runtime. Run on a
+ * device with 'gradlew connectedAndroidTest'; timings are logged under
+ * the 'SublimeMenuBenchmark' tag. Assertions check counts &amp; structure
+ * only, so that results don't depend on the device.
+ */
+public class SublimeMenuBenchmark extends AndroidTestCase {
+    private static final String TAG = SublimeMenuBenchmark.class.getSimpleName();
+
+    private static final int WARM_UP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    private static final int LARGE_MENU_SIZE = 10000;
+    private static final int RECENT_ITEMS = 2000;
+
+    private static final int LIST_WIDTH = 720;
+    private static final int LIST_HEIGHT = 1280;
+
+    private static final int ROW_LAYOUT_PASSES = 200;
+
+    public void testItemIdsAreUniqueAndReused() {
+        SublimeMenu menu = new SublimeMenu(-1);
+        SublimeGroup group = menu.addGroup(false, false, true, true,
+                SublimeGroup.CheckableBehavior.NONE);
+
+        SublimeBaseMenuItem first = menu.addTextItem(group.getGroupId(), "1", null, false);
+        SublimeBaseMenuItem second = menu.addTextItem(group.getGroupId(), "2", null, false);
+        assertTrue(first.getItemId() != second.getItemId());
+
+        // Freed IDs are handed out again
+        menu.removeItem(first.getItemId());
+        SublimeBaseMenuItem third = menu.addTextItem(group.getGroupId(), "3", null, false);
+        assertEquals(first.getItemId(), third.getItemId());
+
+        // IDs passed in explicitly are never generated
+        menu.addTextItem(SublimeMenu.NO_GROUP_ID, third.getItemId() + 1, "4", null, false);
+        SublimeBaseMenuItem fifth = menu.addTextItem(group.getGroupId(), "5", null, false);
+        assertTrue(fifth.getItemId() != third.getItemId() + 1);
+    }
+
+    public void testBulkConstructionIsLinear() {
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            buildMenu(1000);
+        }
+
+        long small = measure(1000);
+        long large = measure(4000);
+
+        Log.i(TAG, "Building 1000 items: " + small / 1000 + "us, "
+                + "4000 items: " + large / 1000 + "us");
+
+        // Quadratic ID probing made the time for 4000 items ~16 times
+        // that for 1000. IDs are now taken from the lowest free ID
+        // onwards - each item gets the next one, without skipping.
+        List<SublimeBaseMenuItem> items = buildMenu(4000).getVisibleItems();
+        assertEquals(4000, items.size());
+
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(i + 1, items.get(i).getItemId());
+        }
+    }
+
+    public void testInsertionNearTopIsSubLinear() {
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            measureInsertionNearTop(1000);
+        }
+
+        long small = measureInsertionNearTop(1000);
+        long large = measureInsertionNearTop(16000);
+
+        int smallRelocations = countRelocationsBelow(1000);
+        int largeRelocations = countRelocationsBelow(16000);
+
+        Log.i(TAG, "Adding " + RECENT_ITEMS + " items above 1000 items: " + small / 1000 + "us, "
+                + smallRelocations + " relocations of the items below; above 16000 items: "
+                + large / 1000 + "us, " + largeRelocations + " relocations");
+
+        // Shifting every following item moved them on each insertion.
+        // They now only move when storage grows, which at least doubles
+        // it - twice at most on the way to RECENT_ITEMS more items.
+        assertTrue(smallRelocations <= 2);
+        assertTrue(largeRelocations <= 2);
+    }
+
+    private long measureInsertionNearTop(int itemsBelow) {
+        long best = Long.MAX_VALUE;
+
+        for (int run = 0; run < MEASURED_RUNS; run++) {
+            SublimeMenu menu = new SublimeMenu(-1);
+            int recentGroupId = addItemsBelowRecent(menu, itemsBelow);
+
+            long start = System.nanoTime();
+
+            for (int i = 0; i < RECENT_ITEMS; i++) {
+                menu.addTextItem(recentGroupId, "Recent " + i, null, false);
+            }
+
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        return best;
+    }
+
+    /**
+     * Returns the number of insertions above 'itemsBelow' items
+     * that moved those items to other slots.
+     */
+    private int countRelocationsBelow(int itemsBelow) {
+        SublimeMenu menu = new SublimeMenu(-1);
+        int recentGroupId = addItemsBelowRecent(menu, itemsBelow);
+
+        List<SublimeBaseMenuItem> items = menu.getVisibleItems();
+        SublimeBaseMenuItem first = items.get(items.size() - itemsBelow);
+        SublimeBaseMenuItem last = items.get(items.size() - 1);
+        int firstSlot = first.getSlot(), lastSlot = last.getSlot();
+        int relocations = 0;
+
+        for (int i = 0; i < RECENT_ITEMS; i++) {
+            menu.addTextItem(recentGroupId, "Recent " + i, null, false);
+
+            if (first.getSlot() != firstSlot || last.getSlot() != lastSlot) {
+                firstSlot = first.getSlot();
+                lastSlot = last.getSlot();
+                relocations++;
+            }
+        }
+
+        assertEquals(2 + RECENT_ITEMS, first.getPositionInMenu());
+        assertEquals(2 + RECENT_ITEMS + itemsBelow - 1, last.getPositionInMenu());
+        return relocations;
+    }
+
+    /**
+     * Adds a 'recent' group with two items, followed by a group with
+     * 'itemsBelow' items, leaving storage's free space next to
+     * 'recent'.
+     *
+     * @return ID of the 'recent' group
+     */
+    private static int addItemsBelowRecent(SublimeMenu menu, int itemsBelow) {
+        SublimeGroup recent = menu.addGroup(false, false, true, true,
+                SublimeGroup.CheckableBehavior.NONE);
+        SublimeGroup all = menu.addGroup(false, false, true, true,
+                SublimeGroup.CheckableBehavior.NONE);
+
+        // Keeps 'recent' above 'all'
+        menu.addTextItem(recent.getGroupId(), "Recent", null, false);
+
+        SublimeMenu.ItemsBuilder builder = menu.newItemsBuilder(all.getGroupId());
+
+        for (int i = 0; i < itemsBelow; i++) {
+            builder.addTextItem("Item " + i, null, false);
+        }
+
+        builder.add();
+
+        // Moves storage's free space next to 'recent'
+        menu.addTextItem(recent.getGroupId(), "Recent", null, false);
+        return recent.getGroupId();
+    }
+
+    public void testCompactStorageCreatesItemsOnDemand() {
+        // Titles are shared by both menus, so that only
+        // the storage of the menus is measured.
+        CharSequence[] titles = new CharSequence[LARGE_MENU_SIZE];
+
+        for (int i = 0; i < LARGE_MENU_SIZE; i++) {
+            titles[i] = "Item " + i;
+        }
+
+        long empty = usedHeap();
+        SublimeMenu objects = buildFolderTree(titles, false);
+        long objectBytes = usedHeap() - empty;
+
+        SublimeMenu compact = buildFolderTree(titles, true);
+        long compactBytes = usedHeap() - empty - objectBytes;
+
+        Log.i(TAG, 2 * LARGE_MENU_SIZE + " items: " + objectBytes / (2 * LARGE_MENU_SIZE)
+                + " bytes/item retained with item objects, "
+                + compactBytes / (2 * LARGE_MENU_SIZE) + " bytes/item stored compactly");
+
+        assertEquals(objects.size(), compact.size());
+
+        // Each folder created its last entry, the header is an item
+        assertEquals(2 * (LARGE_MENU_SIZE - 1), compact.getCompactItemCount());
+
+        SublimeMenuPresenter presenter = new SublimeMenuPresenter();
+        switchMenuTo(presenter, compact, false);
+
+        View list = presenter.getMenuView(new FrameLayout(getContext()));
+        presenter.setInitializationDone();
+        layout(list);
+
+        // Presenting collapsed folders creates nothing
+        assertEquals(2 * (LARGE_MENU_SIZE - 1), compact.getCompactItemCount());
+
+        // Items of the expanded folder are presented - the
+        // other folder's entries are still stored compactly
+        SublimeBaseMenuItem firstHeader = compact.getMenuItem(1);
+        compact.getGroup(firstHeader.getGroupId()).setStateCollapsed(false);
+        layout(list);
+        assertEquals(LARGE_MENU_SIZE - 1, compact.getCompactItemCount());
+
+        // Looking up an entry creates only that entry. IDs are
+        // handed out in order - the last one is taken by the
+        // folder's last entry, which was created.
+        int itemId = compact.size() - 1;
+        assertEquals(itemId, compact.getMenuItem(itemId).getItemId());
+        assertEquals(LARGE_MENU_SIZE - 2, compact.getCompactItemCount());
+    }
+
+    /**
+     * Builds a menu with two collapsed folders, each holding a header
+     * &amp; one entry per title.
+     */
+    private static SublimeMenu buildFolderTree(CharSequence[] titles, boolean compact) {
+        SublimeMenu menu = new SublimeMenu(-1).setStoresItemsCompactly(compact);
+
+        for (int folder = 0; folder < 2; folder++) {
+            SublimeGroup group = menu.addGroup(true, true, true, true,
+                    SublimeGroup.CheckableBehavior.NONE);
+            menu.addGroupHeaderItem(group.getGroupId(), "Folder " + folder, null, false);
+
+            SublimeMenu.ItemsBuilder builder = menu.newItemsBuilder(group.getGroupId())
+                    .ensureCapacity(titles.length);
+
+            for (CharSequence title : titles) {
+                builder.addTextItem(title, null, true);
+            }
+
+            builder.add();
+        }
+
+        return menu;
+    }
+
+    public void testUpdatesRebindOnlyAffectedRows() {
+        SublimeMenu menu = buildMenu(50);
+        SublimeMenuPresenter presenter = new SublimeMenuPresenter();
+        switchMenuTo(presenter, menu, false);
+
+        View list = presenter.getMenuView(new FrameLayout(getContext()));
+        presenter.setInitializationDone();
+        layout(list);
+
+        int visibleRows = presenter.getBindCount();
+
+        // setIcon(...) used to invalidate the entire menu
+        int binds = presenter.getBindCount();
+        menu.getVisibleItems().get(1).setIcon(android.R.drawable.ic_menu_add);
+        layout(list);
+        int iconBinds = presenter.getBindCount() - binds;
+
+        binds = presenter.getBindCount();
+        View header = new View(getContext());
+        presenter.addHeaderView(header);
+        layout(list);
+        int headerAddBinds = presenter.getBindCount() - binds;
+
+        binds = presenter.getBindCount();
+        presenter.removeHeaderView(header);
+        layout(list);
+        int headerRemoveBinds = presenter.getBindCount() - binds;
+
+        // Same IDs, new items - these rows have to be bound again
+        binds = presenter.getBindCount();
+        SublimeMenu otherMenu = buildMenu(50);
+        switchMenuTo(presenter, otherMenu, false);
+        layout(list);
+        int switchBinds = presenter.getBindCount() - binds;
+
+        binds = presenter.getBindCount();
+        switchMenuTo(presenter, menu, false);
+        layout(list);
+        int switchBackBinds = presenter.getBindCount() - binds;
+
+        binds = presenter.getBindCount();
+        switchMenuTo(presenter, menu, false);
+        layout(list);
+        int switchToCurrentBinds = presenter.getBindCount() - binds;
+
+        // Rows keep their views - only the items are swapped in
+        binds = presenter.getBindCount();
+        switchMenuTo(presenter, otherMenu, true);
+        layout(list);
+        int switchSharedBinds = presenter.getBindCount() - binds;
+
+        Log.i(TAG, visibleRows + " visible rows - binds for setIcon: " + iconBinds
+                + ", adding header: " + headerAddBinds
+                + ", removing header: " + headerRemoveBinds
+                + ", switching menus: " + switchBinds
+                + ", switching back: " + switchBackBinds
+                + ", switching to the current menu: " + switchToCurrentBinds
+                + ", switching menus keeping shared rows: " + switchSharedBinds);
+
+        // Each of these used to rebind all visible rows
+        assertEquals(1, iconBinds);
+        assertTrue(headerAddBinds <= 1);
+        assertEquals(0, headerRemoveBinds);
+        assertEquals(0, switchToCurrentBinds);
+        assertTrue(switchBinds <= visibleRows);
+        assertTrue(switchBackBinds <= visibleRows);
+        assertTrue(switchSharedBinds <= visibleRows);
+    }
+
+    /**
+     * Does what {@link SublimeNavigationView#switchMenuTo(SublimeMenu, boolean)}
+     * does with the navigation view's presenter.
+     */
+    private void switchMenuTo(SublimeMenuPresenter presenter, SublimeMenu newMenu,
+                              boolean keepSharedRows) {
+        if (keepSharedRows) {
+            presenter.keepSharedRowsOnNextUpdate();
+        }
+
+        newMenu.setMenuPresenter(getContext(), presenter);
+    }
+
+    public void testFlatRowsLayOutFaster() {
+        SublimeMenu menu = new SublimeMenu(-1);
+        SublimeGroup group = menu.addGroup(false, false, true, true,
+                SublimeGroup.CheckableBehavior.NONE);
+        SublimeBaseMenuItem[] items = {
+                menu.addTextItem(group.getGroupId(), "Inbox", "All mail", false),
+                menu.addTextWithBadgeItem(group.getGroupId(), "Drafts", null, "12", false)
+        };
+        items[0].setIcon(android.R.drawable.ic_menu_add);
+
+        SublimeThemer themer = new SublimeThemer(getContext());
+        ViewGroup parent = new FrameLayout(getContext());
+        LayoutInflater inflater = LayoutInflater.from(getContext());
+
+        for (SublimeBaseMenuItem item : items) {
+            boolean hasBadge = item.getItemType() == SublimeBaseMenuItem.ItemType.BADGE;
+            SublimeBaseItemView row = (SublimeBaseItemView) inflater.inflate(hasBadge ?
+                    R.layout.sublime_text_with_badge_item_view
+                    : R.layout.sublime_text_item_view, parent, false);
+            SublimeFlatItemView flatRow = (SublimeFlatItemView) inflater.inflate(
+                    R.layout.sublime_flat_item_view, parent, false);
+
+            for (int i = 0; i < WARM_UP_RUNS; i++) {
+                measureRowLayout(row, null, item, themer);
+                measureRowLayout(null, flatRow, item, themer);
+            }
+
+            long[] current = measureRowLayout(row, null, item, themer);
+            long[] flat = measureRowLayout(null, flatRow, item, themer);
+
+            int currentViews = countViews(row);
+
+            Log.i(TAG, "Per " + item.getItemType() + " row - current views ("
+                    + currentViews + "): " + current[0] + "ns measure & layout, "
+                    + current[1] + "ns draw; flat row: " + flat[0] + "ns measure & layout, "
+                    + flat[1] + "ns draw");
+
+            // A flat row is measured, laid out & drawn as a single view
+            assertEquals(1, countViews(flatRow));
+            assertTrue(currentViews > 1);
+            assertEquals(row.getMeasuredHeight(), flatRow.getMeasuredHeight());
+            assertEquals(row.getMeasuredWidth(), flatRow.getMeasuredWidth());
+        }
+    }
+
+    private static int countViews(View view) {
+        int count = 1;
+
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+
+            for (int i = 0; i < group.getChildCount(); i++) {
+                count += countViews(group.getChildAt(i));
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the time measure &amp; layout, and drawing take per bind of
+     * 'item', for either 'row' or 'flatRow'. Titles alternate between
+     * binds, so that text has to be measured again, as when rows are
+     * bound while scrolling.
+     */
+    private long[] measureRowLayout(SublimeBaseItemView row, SublimeFlatItemView flatRow,
+                                    SublimeBaseMenuItem item, SublimeThemer themer) {
+        View view = row != null ? row : flatRow;
+        int height = view.getLayoutParams().height;
+        int widthSpec = View.MeasureSpec.makeMeasureSpec(LIST_WIDTH, View.MeasureSpec.EXACTLY);
+        int heightSpec = View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY);
+        Canvas canvas = new Canvas(Bitmap.createBitmap(LIST_WIDTH, height,
+                Bitmap.Config.ARGB_8888));
+        CharSequence title = item.getTitle();
+        long[] best = {Long.MAX_VALUE, Long.MAX_VALUE};
+
+        for (int run = 0; run < MEASURED_RUNS; run++) {
+            long layoutTime = 0, drawTime = 0;
+
+            for (int pass = 0; pass < ROW_LAYOUT_PASSES; pass++) {
+                item.setTitle(pass % 2 == 0 ? title : title + " " + pass);
+
+                if (row != null) {
+                    row.initialize(item, themer);
+                } else {
+                    flatRow.initialize(item, themer);
+                }
+
+                // As when RecyclerView adds a row
+                view.forceLayout();
+
+                long start = System.nanoTime();
+                view.measure(widthSpec, heightSpec);
+                view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+                long laidOut = System.nanoTime();
+                view.draw(canvas);
+                long drawn = System.nanoTime();
+
+                layoutTime += laidOut - start;
+                drawTime += drawn - laidOut;
+            }
+
+            best[0] = Math.min(best[0], layoutTime / ROW_LAYOUT_PASSES);
+            best[1] = Math.min(best[1], drawTime / ROW_LAYOUT_PASSES);
+        }
+
+        item.setTitle(title);
+        return best;
+    }
+
+    private static void layout(View view) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(LIST_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(LIST_HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, LIST_WIDTH, LIST_HEIGHT);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            runtime.runFinalization();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private long measure(int itemCount) {
+        long best = Long.MAX_VALUE;
+
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            buildMenu(itemCount);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        return best;
+    }
+
+    private SublimeMenu buildMenu(int itemCount) {
+        SublimeMenu menu = new SublimeMenu(-1);
+        SublimeGroup group = menu.addGroup(true, false, true, true,
+                SublimeGroup.CheckableBehavior.SINGLE);
+
+        for (int i = 0; i < itemCount; i++) {
+            menu.addTextItem(group.getGroupId(), "Item " + i, null, false);
+        }
+
+        return menu;
+    }
+}
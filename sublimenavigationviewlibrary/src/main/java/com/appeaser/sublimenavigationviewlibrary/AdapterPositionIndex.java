@@ -0,0 +1,918 @@
+/*
+ * Copyright 2015 Vikram Kakkar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.appeaser.sublimenavigationviewlibrary;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Storage for the items of a {@link SublimeMenu}, and the items presented
+ * by {@link SublimeMenuPresenter}. Backed by a segment tree over all items.
+ *
+ * Every menu position carries a 'visible' flag (the item's own visibility)
+ * and a 'hide count' (number of reasons its group has for hiding it -
+ * group hidden, group collapsed). An item is presented when it is visible
+ * &amp; its hide count is zero. Hide counts are assigned to whole ranges
+ * lazily, so collapsing or hiding a group takes O(log n) regardless of its
+ * size. Adapter position for a menu position, and the item at an adapter
+ * position, are found in O(log n) as well.
+ *
+ * Leaves form a gap buffer: free leaves are kept together at the position
+ * of the last insertion/removal. Moving the gap only touches the items
+ * between its old &amp; new position, so repeated edits in one part of the
+ * menu (appending, or adding to a group near the top) take O(log n) each.
+ * Each item records the leaf it occupies (see
+ * {@link SublimeBaseMenuItem#getSlot()}), which maps to its menu position
+ * in O(1).
+ *
+ * The {@link List} implemented here is the presented items, by adapter
+ * position. {@link #getMenuItems()} returns all items, by menu position.
+ *
+ * Leaves can also hold a row of a {@link CompactItemStore} instead of an
+ * item. The item is created through an {@link ItemFactory} when it is
+ * first returned, so presenting or looking up a few items of a large
+ * menu only creates those items.
+ */
+final class AdapterPositionIndex extends AbstractList<SublimeBaseMenuItem> {
+
+    // Node state is packed into a single int:
+    // bits 0-2 min hide count, bits 3-5 pending assignment,
+    // bits 6-31 number of visible leaves with the min hide count.
+    private static final int MIN_MASK = 0x7;
+    private static final int ASSIGNED_SHIFT = 3;
+    private static final int COUNT_SHIFT = 6;
+
+    // Largest hide count that can be stored
+    static final int MAX_HIDE_COUNT = 6;
+
+    // Min hide count of a node without visible items
+    private static final int NONE = 7;
+
+    private static final int NO_ASSIGNMENT = 7;
+
+    private static final int EMPTY_STATE = (NO_ASSIGNMENT << ASSIGNED_SHIFT) | NONE;
+
+    // Shown before all menu items, if set
+    private SublimeBaseMenuItem mHeader;
+
+    // Per leaf: the item, 'null' for leaves in the gap
+    private SublimeBaseMenuItem[] mItems = new SublimeBaseMenuItem[0];
+    private int mSize;
+
+    // Number of leaves - a power of two >= mSize
+    private int mCapacity;
+
+    // Free leaves: [mGapStart, mGapStart + mGapLength). Menu
+    // positions from mGapStart onwards are shifted by mGapLength.
+    private int mGapStart, mGapLength;
+
+    // Per node: number of visible leaves, and the packed state -
+    // minimum hide count among visible leaves, number of visible
+    // leaves with that hide count & pending hide count assignment
+    // for the whole subtree. Two ints per node keep the index
+    // at a fraction of the size of the items themselves.
+    private int[] mVisible, mState;
+
+    // Per leaf: hide count, kept up-to-date as assignments
+    // are pushed down.
+    private byte[] mHideCount;
+
+    private final List<SublimeBaseMenuItem> mMenuItems = new MenuItems();
+
+    /**
+     * Creates the item for a row of a {@link CompactItemStore}.
+     */
+    interface ItemFactory {
+        /**
+         * Creates the item held by 'row'. The row is no longer
+         * needed once this returns.
+         *
+         * @param row row of the store passed to {@link #setCompactItems}
+         * @return the item
+         */
+        SublimeBaseMenuItem createItem(int row);
+    }
+
+    // Rows held by leaves without an item, if any
+    private CompactItemStore mCompactItems;
+    private ItemFactory mItemFactory;
+
+    // Per leaf: row in 'mCompactItems', for leaves without an
+    // item outside the gap. 'null' until rows are used.
+    private int[] mRows;
+
+    AdapterPositionIndex() {
+        allocate(1);
+        mGapLength = 1;
+    }
+
+    private void allocate(int capacity) {
+        mCapacity = capacity;
+        mItems = new SublimeBaseMenuItem[capacity];
+        mVisible = new int[capacity * 2];
+        mState = new int[capacity * 2];
+        mHideCount = new byte[capacity];
+        mRows = mCompactItems != null ? new int[capacity] : null;
+
+        Arrays.fill(mState, EMPTY_STATE);
+    }
+
+    /**
+     * Allows leaves to hold rows of 'compactItems'. See
+     * {@link #insertRows(int, int[], int[])}. Rows of removed items
+     * must only be freed once they have been removed from the index.
+     *
+     * @param compactItems store that holds the rows
+     * @param itemFactory  creates the item for a row when it is needed
+     */
+    void setCompactItems(CompactItemStore compactItems, ItemFactory itemFactory) {
+        mCompactItems = compactItems;
+        mItemFactory = itemFactory;
+
+        if (mRows == null) {
+            mRows = new int[mCapacity];
+        }
+    }
+
+    /**
+     * Sets an item that is shown before all menu items (the header stub).
+     *
+     * @param header item to show first, or 'null'
+     */
+    void setHeader(SublimeBaseMenuItem header) {
+        mHeader = header;
+    }
+
+    boolean hasHeader() {
+        return mHeader != null;
+    }
+
+    /**
+     * Returns all indexed items, by menu position. The returned list
+     * is a read-only view.
+     */
+    List<SublimeBaseMenuItem> getMenuItems() {
+        return mMenuItems;
+    }
+
+    /**
+     * Returns the menu position of the item that occupies 'slot'.
+     *
+     * @param slot slot recorded by the item
+     */
+    int getPositionForSlot(int slot) {
+        return slot < mGapStart ? slot : slot - mGapLength;
+    }
+
+    /**
+     * Replaces the indexed items. Runs in O(n).
+     *
+     * @param items      items of the menu, in order
+     * @param hideCounts hide count of each item
+     */
+    void build(List<SublimeBaseMenuItem> items, int[] hideCounts) {
+        final int size = items.size();
+
+        SublimeBaseMenuItem[] newItems = new SublimeBaseMenuItem[size];
+        byte[] newHideCounts = new byte[size];
+        int[] visible = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            newItems[i] = items.get(i);
+            newHideCounts[i] = (byte) hideCounts[i];
+            visible[i] = newItems[i].isVisible() ? 1 : 0;
+        }
+
+        releaseSlots();
+        layout(newItems, null, newHideCounts, visible, size, capacityFor(size), size);
+    }
+
+    /**
+     * Inserts an item at 'position'. Runs in O(log n + d), 'd' being
+     * the distance from the previous insertion/removal.
+     *
+     * @param position  menu position of the new item
+     * @param item      item that was inserted
+     * @param hideCount hide count of the item
+     */
+    void insert(int position, SublimeBaseMenuItem item, int hideCount) {
+        insert(position, Collections.singletonList(item), new int[]{hideCount});
+    }
+
+    /**
+     * Inserts 'items' starting at 'position'. Runs in O(k + log n + d),
+     * 'd' being the distance from the previous insertion/removal, or
+     * in O(n) if the index has to grow.
+     *
+     * @param position   menu position of the first new item
+     * @param items      items that were inserted
+     * @param hideCounts hide count of each item
+     */
+    void insert(int position, List<SublimeBaseMenuItem> items, int[] hideCounts) {
+        final int count = items.size();
+
+        if (count == 0) return;
+
+        final int from = openGap(position, count);
+
+        for (int i = 0; i < count; i++) {
+            int leaf = from + i;
+            mItems[leaf] = items.get(i);
+            mItems[leaf].setSlot(leaf);
+            mHideCount[leaf] = (byte) hideCounts[i];
+            setLeaf(leaf, mItems[leaf].isVisible());
+        }
+
+        closeGap(from, count);
+    }
+
+    /**
+     * Inserts items held by rows of the store set through
+     * {@link #setCompactItems(CompactItemStore, ItemFactory)}, starting
+     * at 'position'. Items of rows are visible. Runs in the same time as
+     * {@link #insert(int, List, int[])}.
+     *
+     * @param position   menu position of the first new item
+     * @param rows       rows holding the items that were inserted
+     * @param hideCounts hide count of each item
+     */
+    void insertRows(int position, int[] rows, int[] hideCounts) {
+        final int count = rows.length;
+
+        if (count == 0) return;
+
+        final int from = openGap(position, count);
+
+        for (int i = 0; i < count; i++) {
+            int leaf = from + i;
+            mRows[leaf] = rows[i];
+            mCompactItems.setSlot(rows[i], leaf);
+            mHideCount[leaf] = (byte) hideCounts[i];
+            setLeaf(leaf, true);
+        }
+
+        closeGap(from, count);
+    }
+
+    /**
+     * Makes room for 'count' leaves at menu position 'position'.
+     *
+     * @return first of the leaves to fill
+     */
+    private int openGap(int position, int count) {
+        if (mGapLength < count) {
+            grow(mSize + count, position);
+        } else {
+            moveGap(position);
+        }
+
+        pushRange(1, 0, mCapacity, mGapStart, mGapStart + count);
+        return mGapStart;
+    }
+
+    /**
+     * Takes the leaves filled after {@link #openGap(int, int)} out of the gap.
+     */
+    private void closeGap(int from, int count) {
+        mGapStart += count;
+        mGapLength -= count;
+        mSize += count;
+        pullRange(1, 0, mCapacity, from, from + count);
+    }
+
+    /**
+     * Removes the items in [from, to). Runs in O(k + log n + d), 'd'
+     * being the distance from the previous insertion/removal.
+     *
+     * @param from first menu position (inclusive)
+     * @param to   last menu position (exclusive)
+     */
+    void remove(int from, int to) {
+        if (from >= to) return;
+
+        moveGap(from);
+
+        // Removed items now follow the gap
+        final int leafFrom = mGapStart + mGapLength, leafTo = leafFrom + (to - from);
+        pushRange(1, 0, mCapacity, leafFrom, leafTo);
+
+        for (int leaf = leafFrom; leaf < leafTo; leaf++) {
+            releaseSlot(leaf);
+            clearLeaf(leaf);
+        }
+
+        mGapLength += to - from;
+        mSize -= to - from;
+        pullRange(1, 0, mCapacity, leafFrom, leafTo);
+    }
+
+    /**
+     * Removes the items at all positions set in 'positions', compacting
+     * the remaining items in a single sweep. Runs in O(n).
+     *
+     * @param positions menu positions to remove
+     */
+    void removePositions(BitSet positions) {
+        pushAll();
+
+        SublimeBaseMenuItem[] items = new SublimeBaseMenuItem[mSize];
+        int[] rows = mRows != null ? new int[mSize] : null;
+        byte[] hideCounts = new byte[mSize];
+        int[] visible = new int[mSize];
+        int size = 0;
+
+        for (int i = 0; i < mSize; i++) {
+            int leaf = leafFor(i);
+
+            if (positions.get(i)) {
+                releaseSlot(leaf);
+            } else {
+                copyLeaf(leaf, items, rows, hideCounts, visible, size);
+                size++;
+            }
+        }
+
+        layout(items, rows, hideCounts, visible, size, mCapacity, size);
+    }
+
+    /**
+     * Assigns new hide counts to all items, &amp; records the current
+     * visibility of their items. Same as calling {@link #build(List, int[])}
+     * with the indexed items, but items are not created for rows. Runs
+     * in O(n).
+     *
+     * @param hideCounts hide count of each item, by menu position
+     */
+    void rebuild(int[] hideCounts) {
+        pushAll();
+
+        SublimeBaseMenuItem[] items = new SublimeBaseMenuItem[mSize];
+        int[] rows = mRows != null ? new int[mSize] : null;
+        byte[] newHideCounts = new byte[mSize];
+        int[] visible = new int[mSize];
+
+        for (int i = 0; i < mSize; i++) {
+            int leaf = leafFor(i);
+            copyLeaf(leaf, items, rows, newHideCounts, visible, i);
+            newHideCounts[i] = (byte) hideCounts[i];
+
+            if (items[i] != null) {
+                visible[i] = items[i].isVisible() ? 1 : 0;
+            }
+        }
+
+        layout(items, rows, newHideCounts, visible, mSize, mCapacity, mSize);
+    }
+
+    void reset() {
+        releaseSlots();
+        allocate(1);
+        mSize = 0;
+        mGapStart = 0;
+        mGapLength = 1;
+    }
+
+    /**
+     * Returns the number of indexed menu items (shown or not).
+     */
+    int getItemCount() {
+        return mSize;
+    }
+
+    /**
+     * Returns the item at 'position' if it has been created.
+     *
+     * @param position menu position
+     * @return the item, or 'null' if a row holds it
+     */
+    SublimeBaseMenuItem peek(int position) {
+        return mItems[leafFor(position)];
+    }
+
+    /**
+     * Returns the row that holds the item at 'position'.
+     *
+     * @param position menu position
+     * @return the row, or -1 if the item has been created
+     */
+    int getRow(int position) {
+        int leaf = leafFor(position);
+        return mItems[leaf] == null ? mRows[leaf] : -1;
+    }
+
+    /**
+     * Indicates whether the item at 'position' is presented.
+     *
+     * @param position menu position
+     */
+    boolean isShown(int position) {
+        return countShown(position, position + 1) == 1;
+    }
+
+    /**
+     * Returns the visibility recorded for the item at 'position'.
+     *
+     * @param position menu position
+     */
+    boolean isVisibleAt(int position) {
+        int leaf = leafFor(position);
+        pushPath(leaf);
+        return mVisible[mCapacity + leaf] == 1;
+    }
+
+    /**
+     * Records the visibility of the item at 'position'.
+     *
+     * @param position menu position
+     * @param visible  'true' if the item is visible
+     */
+    void setVisible(int position, boolean visible) {
+        int leaf = leafFor(position);
+        pushPath(leaf);
+        setLeaf(leaf, visible);
+        pullPath(leaf);
+    }
+
+    /**
+     * Assigns 'hideCount' to all items in [from, to).
+     *
+     * @param from      first menu position (inclusive)
+     * @param to        last menu position (exclusive)
+     * @param hideCount number of reasons for hiding the items
+     */
+    void setHideCount(int from, int to, int hideCount) {
+        if (from < to) {
+            // Leaves in the gap may be included - they
+            // are never shown, and are reset when used.
+            assign(1, 0, mCapacity, leafFor(from), leafFor(to - 1) + 1, hideCount);
+        }
+    }
+
+    /**
+     * Returns the number of presented items in [from, to).
+     *
+     * @param from first menu position (inclusive)
+     * @param to   last menu position (exclusive)
+     */
+    int countShown(int from, int to) {
+        return from < to ? count(1, 0, mCapacity, leafFor(from), leafFor(to - 1) + 1) : 0;
+    }
+
+    /**
+     * Returns the adapter position at which the item at 'position'
+     * is, or would be presented. Takes the header into account.
+     *
+     * @param position menu position
+     */
+    int getAdapterPosition(int position) {
+        return (mHeader != null ? 1 : 0) + countShown(0, position);
+    }
+
+    //----------------------------------------------------------------//
+    //------------------------------List------------------------------//
+    //----------------------------------------------------------------//
+
+    @Override
+    public SublimeBaseMenuItem get(int adapterPosition) {
+        if (mHeader != null) {
+            if (adapterPosition == 0) {
+                return mHeader;
+            }
+
+            adapterPosition--;
+        }
+
+        if (adapterPosition < 0 || adapterPosition >= shown(1)) {
+            throw new IndexOutOfBoundsException("Invalid adapter position: "
+                    + adapterPosition);
+        }
+
+        int node = 1;
+
+        while (node < mCapacity) {
+            push(node);
+
+            int left = shown(node * 2);
+
+            if (adapterPosition < left) {
+                node = node * 2;
+            } else {
+                adapterPosition -= left;
+                node = node * 2 + 1;
+            }
+        }
+
+        return itemAt(node - mCapacity);
+    }
+
+    @Override
+    public int size() {
+        return (mHeader != null ? 1 : 0) + shown(1);
+    }
+
+    @Override
+    public Object[] toArray() {
+        // Visits only the subtrees that contain presented items
+        Object[] array = new Object[size()];
+        int index = 0;
+
+        if (mHeader != null) {
+            array[index++] = mHeader;
+        }
+
+        collect(1, array, index);
+        return array;
+    }
+
+    private int collect(int node, Object[] array, int index) {
+        if (shown(node) == 0) {
+            return index;
+        }
+
+        if (node >= mCapacity) {
+            array[index++] = itemAt(node - mCapacity);
+            return index;
+        }
+
+        push(node);
+        index = collect(node * 2, array, index);
+        return collect(node * 2 + 1, array, index);
+    }
+
+    /**
+     * All indexed items, by menu position.
+     */
+    private final class MenuItems extends AbstractList<SublimeBaseMenuItem> {
+
+        @Override
+        public SublimeBaseMenuItem get(int position) {
+            if (position < 0 || position >= mSize) {
+                throw new IndexOutOfBoundsException("Invalid menu position: " + position);
+            }
+
+            return itemAt(leafFor(position));
+        }
+
+        @Override
+        public int size() {
+            return mSize;
+        }
+    }
+
+    //----------------------------------------------------------------//
+    //------------------------------Leaves----------------------------//
+    //----------------------------------------------------------------//
+
+    /**
+     * Returns the item at 'leaf', creating it if a row holds it.
+     */
+    private SublimeBaseMenuItem itemAt(int leaf) {
+        SublimeBaseMenuItem item = mItems[leaf];
+
+        if (item == null) {
+            item = mItemFactory.createItem(mRows[leaf]);
+            item.setSlot(leaf);
+            mItems[leaf] = item;
+        }
+
+        return item;
+    }
+
+    /**
+     * Records 'leaf' as the slot of the item or row it holds.
+     */
+    private void placeAt(int leaf) {
+        if (mItems[leaf] != null) {
+            mItems[leaf].setSlot(leaf);
+        } else {
+            mCompactItems.setSlot(mRows[leaf], leaf);
+        }
+    }
+
+    /**
+     * Marks the item at 'leaf' as removed. Rows are freed by the
+     * owner of the store, after the index has removed them.
+     */
+    private void releaseSlot(int leaf) {
+        if (mItems[leaf] != null) {
+            mItems[leaf].setSlot(-1);
+        }
+    }
+
+    /**
+     * Copies the leaf data of 'leaf' to index 'i' of the given arrays.
+     */
+    private void copyLeaf(int leaf, SublimeBaseMenuItem[] items, int[] rows,
+                          byte[] hideCounts, int[] visible, int i) {
+        items[i] = mItems[leaf];
+        hideCounts[i] = mHideCount[leaf];
+        visible[i] = mVisible[mCapacity + leaf];
+
+        if (rows != null) {
+            rows[i] = mRows[leaf];
+        }
+    }
+
+    //----------------------------------------------------------------//
+    //------------------------------Gap-------------------------------//
+    //----------------------------------------------------------------//
+
+    private int leafFor(int position) {
+        return position < mGapStart ? position : position + mGapLength;
+    }
+
+    private static int capacityFor(int size) {
+        int capacity = 1;
+
+        while (capacity < size) {
+            capacity <<= 1;
+        }
+
+        return capacity;
+    }
+
+    /**
+     * Moves the gap to menu position 'position', shifting the
+     * items in between. Runs in O(d + log n).
+     */
+    private void moveGap(int position) {
+        if (position == mGapStart) return;
+
+        // Items in [srcFrom, srcFrom + count) move to [dstFrom, dstFrom + count)
+        final int srcFrom, dstFrom, count;
+
+        if (position < mGapStart) {
+            count = mGapStart - position;
+            srcFrom = position;
+            dstFrom = position + mGapLength;
+        } else {
+            count = position - mGapStart;
+            srcFrom = mGapStart + mGapLength;
+            dstFrom = mGapStart;
+        }
+
+        pushRange(1, 0, mCapacity, srcFrom, srcFrom + count);
+        pushRange(1, 0, mCapacity, dstFrom, dstFrom + count);
+
+        System.arraycopy(mItems, srcFrom, mItems, dstFrom, count);
+        System.arraycopy(mHideCount, srcFrom, mHideCount, dstFrom, count);
+        System.arraycopy(mVisible, mCapacity + srcFrom, mVisible, mCapacity + dstFrom, count);
+
+        if (mRows != null) {
+            System.arraycopy(mRows, srcFrom, mRows, dstFrom, count);
+        }
+
+        for (int leaf = dstFrom; leaf < dstFrom + count; leaf++) {
+            placeAt(leaf);
+            setLeaf(leaf, mVisible[mCapacity + leaf] == 1);
+        }
+
+        // Leaves that were vacated join the gap
+        for (int leaf = srcFrom; leaf < srcFrom + count; leaf++) {
+            if (leaf < dstFrom || leaf >= dstFrom + count) {
+                clearLeaf(leaf);
+            }
+        }
+
+        mGapStart = position;
+
+        pullRange(1, 0, mCapacity, srcFrom, srcFrom + count);
+        pullRange(1, 0, mCapacity, dstFrom, dstFrom + count);
+    }
+
+    /**
+     * Grows the index to hold at least 'size' items, placing the gap
+     * at menu position 'gapAt'. Runs in O(n).
+     */
+    private void grow(int size, int gapAt) {
+        pushAll();
+
+        SublimeBaseMenuItem[] items = new SublimeBaseMenuItem[mSize];
+        int[] rows = mRows != null ? new int[mSize] : null;
+        byte[] hideCounts = new byte[mSize];
+        int[] visible = new int[mSize];
+
+        for (int i = 0; i < mSize; i++) {
+            copyLeaf(leafFor(i), items, rows, hideCounts, visible, i);
+        }
+
+        layout(items, rows, hideCounts, visible, mSize,
+                capacityFor(Math.max(size, mCapacity * 2)), gapAt);
+    }
+
+    /**
+     * Rebuilds the tree from leaf data, with the gap at 'gapAt'.
+     * Recorded visibility is kept as it is, even if it differs
+     * from the items' current visibility. 'rows' is only read
+     * for missing items.
+     */
+    private void layout(SublimeBaseMenuItem[] items, int[] rows, byte[] hideCounts,
+                        int[] visible, int size, int capacity, int gapAt) {
+        allocate(capacity);
+        mSize = size;
+        mGapStart = gapAt;
+        mGapLength = capacity - size;
+
+        for (int i = 0; i < size; i++) {
+            int leaf = leafFor(i);
+            mItems[leaf] = items[i];
+
+            if (items[i] == null) {
+                mRows[leaf] = rows[i];
+            }
+
+            placeAt(leaf);
+            mHideCount[leaf] = hideCounts[i];
+            setLeaf(leaf, visible[i] == 1);
+        }
+
+        for (int node = mCapacity - 1; node > 0; node--) {
+            pull(node);
+        }
+    }
+
+    private void releaseSlots() {
+        for (int i = 0; i < mSize; i++) {
+            releaseSlot(leafFor(i));
+        }
+    }
+
+    private void pushAll() {
+        for (int node = 1; node < mCapacity; node++) {
+            push(node);
+        }
+    }
+
+    //----------------------------------------------------------------//
+    //---------------------------Segment tree-------------------------//
+    //----------------------------------------------------------------//
+
+    private int shown(int node) {
+        return min(node) == 0 ? minCount(node) : 0;
+    }
+
+    private int min(int node) {
+        return mState[node] & MIN_MASK;
+    }
+
+    private int minCount(int node) {
+        return mState[node] >>> COUNT_SHIFT;
+    }
+
+    private int assigned(int node) {
+        return (mState[node] >>> ASSIGNED_SHIFT) & MIN_MASK;
+    }
+
+    private void setState(int node, int min, int minCount, int assigned) {
+        mState[node] = (minCount << COUNT_SHIFT) | (assigned << ASSIGNED_SHIFT) | min;
+    }
+
+    private void setLeaf(int leaf, boolean visible) {
+        int node = mCapacity + leaf;
+        mVisible[node] = visible ? 1 : 0;
+        setState(node, visible ? mHideCount[leaf] : NONE,
+                visible ? 1 : 0, NO_ASSIGNMENT);
+    }
+
+    private void clearLeaf(int leaf) {
+        mItems[leaf] = null;
+        mVisible[mCapacity + leaf] = 0;
+        mState[mCapacity + leaf] = EMPTY_STATE;
+    }
+
+    private void apply(int node, int hideCount) {
+        int assigned = NO_ASSIGNMENT;
+
+        if (node >= mCapacity) {
+            mHideCount[node - mCapacity] = (byte) hideCount;
+        } else {
+            assigned = hideCount;
+        }
+
+        setState(node, mVisible[node] > 0 ? hideCount : NONE, mVisible[node], assigned);
+    }
+
+    private void push(int node) {
+        int assigned = assigned(node);
+
+        if (assigned != NO_ASSIGNMENT) {
+            apply(node * 2, assigned);
+            apply(node * 2 + 1, assigned);
+            setState(node, min(node), minCount(node), NO_ASSIGNMENT);
+        }
+    }
+
+    private void pull(int node) {
+        int left = node * 2, right = left + 1;
+        int minLeft = min(left), minRight = min(right);
+
+        mVisible[node] = mVisible[left] + mVisible[right];
+
+        // Only called once pending assignments are pushed down
+        if (minLeft < minRight) {
+            setState(node, minLeft, minCount(left), NO_ASSIGNMENT);
+        } else if (minLeft > minRight) {
+            setState(node, minRight, minCount(right), NO_ASSIGNMENT);
+        } else {
+            setState(node, minLeft, minCount(left) + minCount(right), NO_ASSIGNMENT);
+        }
+    }
+
+    /**
+     * Pushes pending assignments down to 'leaf'.
+     */
+    private void pushPath(int leaf) {
+        int node = mCapacity + leaf;
+
+        for (int shift = Integer.numberOfTrailingZeros(mCapacity); shift > 0; shift--) {
+            push(node >> shift);
+        }
+    }
+
+    private void pullPath(int leaf) {
+        for (int node = (mCapacity + leaf) >> 1; node > 0; node >>= 1) {
+            pull(node);
+        }
+    }
+
+    /**
+     * Pushes pending assignments down to the leaves in [from, to).
+     */
+    private void pushRange(int node, int nodeFrom, int nodeTo, int from, int to) {
+        if (to <= nodeFrom || nodeTo <= from || node >= mCapacity) {
+            return;
+        }
+
+        push(node);
+
+        int mid = (nodeFrom + nodeTo) >>> 1;
+        pushRange(node * 2, nodeFrom, mid, from, to);
+        pushRange(node * 2 + 1, mid, nodeTo, from, to);
+    }
+
+    /**
+     * Recomputes the ancestors of the leaves in [from, to).
+     */
+    private void pullRange(int node, int nodeFrom, int nodeTo, int from, int to) {
+        if (to <= nodeFrom || nodeTo <= from || node >= mCapacity) {
+            return;
+        }
+
+        int mid = (nodeFrom + nodeTo) >>> 1;
+        pullRange(node * 2, nodeFrom, mid, from, to);
+        pullRange(node * 2 + 1, mid, nodeTo, from, to);
+        pull(node);
+    }
+
+    private void assign(int node, int nodeFrom, int nodeTo,
+                        int from, int to, int hideCount) {
+        if (to <= nodeFrom || nodeTo <= from) {
+            return;
+        }
+
+        if (from <= nodeFrom && nodeTo <= to) {
+            apply(node, hideCount);
+            return;
+        }
+
+        push(node);
+
+        int mid = (nodeFrom + nodeTo) >>> 1;
+        assign(node * 2, nodeFrom, mid, from, to, hideCount);
+        assign(node * 2 + 1, mid, nodeTo, from, to, hideCount);
+        pull(node);
+    }
+
+    private int count(int node, int nodeFrom, int nodeTo, int from, int to) {
+        if (to <= nodeFrom || nodeTo <= from) {
+            return 0;
+        }
+
+        if (from <= nodeFrom && nodeTo <= to) {
+            return shown(node);
+        }
+
+        push(node);
+
+        int mid = (nodeFrom + nodeTo) >>> 1;
+        return count(node * 2, nodeFrom, mid, from, to)
+                + count(node * 2 + 1, mid, nodeTo, from, to);
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2015 Vikram Kakkar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.appeaser.sublimenavigationviewlibrary;
+
+import java.util.Arrays;
+
+/**
+ * Holds menu items that have not been created yet, one row per item, in
+ * parallel arrays. Used by {@link SublimeMenu} when it stores items
+ * compactly (see {@link SublimeMenu#setStoresItemsCompactly(boolean)}).
+ *
+ * A row only records what the 'create' methods of the menu take - items
+ * start out visible, enabled &amp; unchecked, so their flags need not be
+ * stored. Rows are looked up by item ID in constant time on average, and
+ * rows that are removed are reused.
+ */
+final class CompactItemStore {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private static final SublimeBaseMenuItem.ItemType[] ITEM_TYPES
+            = SublimeBaseMenuItem.ItemType.values();
+
+    // Bits 0-6 of a row's info: the item type's ordinal
+    private static final int TYPE_MASK = 0x7F;
+    private static final int SHOWS_ICON_SPACE = 0x80;
+
+    // Slots of free rows are at or below this value
+    private static final int FREE = -2;
+
+    // Per row
+    private int[] mIds, mGroupIds, mSlots;
+    private byte[] mInfo;
+    private CharSequence[] mTitles, mHints, mBadgeTexts;
+
+    // Rows in [0, mRowCount) have been handed out
+    private int mRowCount;
+
+    // Free rows, chained through 'mSlots'. -1 if there are none.
+    private int mFirstFree = -1;
+
+    private int mSize;
+
+    // Open addressing table: row + 1 per used entry, keyed
+    // by the row's ID. Load factor is kept at or below 0.5.
+    private int[] mTable;
+
+    CompactItemStore() {
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        mIds = new int[capacity];
+        mGroupIds = new int[capacity];
+        mSlots = new int[capacity];
+        mInfo = new byte[capacity];
+        mTitles = new CharSequence[capacity];
+        mHints = new CharSequence[capacity];
+        mBadgeTexts = new CharSequence[capacity];
+        mTable = new int[capacity * 2];
+        mRowCount = 0;
+        mFirstFree = -1;
+        mSize = 0;
+    }
+
+    /**
+     * Adds a row. The new row's slot is -1.
+     *
+     * @return the row
+     */
+    int add(int id, int groupId, SublimeBaseMenuItem.ItemType itemType,
+            CharSequence title, CharSequence hint, CharSequence badgeText,
+            boolean showsIconSpace) {
+        int row;
+
+        if (mFirstFree != -1) {
+            row = mFirstFree;
+            mFirstFree = FREE - 1 - mSlots[row];
+        } else {
+            if (mRowCount == mIds.length) {
+                ensureCapacity(mRowCount + 1);
+            }
+
+            row = mRowCount++;
+        }
+
+        mIds[row] = id;
+        mGroupIds[row] = groupId;
+        mSlots[row] = -1;
+        mInfo[row] = (byte) (itemType.ordinal() | (showsIconSpace ? SHOWS_ICON_SPACE : 0));
+        mTitles[row] = title;
+        mHints[row] = hint;
+        mBadgeTexts[row] = badgeText;
+        mSize++;
+
+        mTable[tableSlotFor(id)] = row + 1;
+        return row;
+    }
+
+    /**
+     * Frees 'row' for reuse. Its ID is no longer found.
+     */
+    void remove(int row) {
+        removeFromTable(tableSlotFor(mIds[row]));
+
+        mTitles[row] = null;
+        mHints[row] = null;
+        mBadgeTexts[row] = null;
+        mSlots[row] = FREE - 1 - mFirstFree;
+        mFirstFree = row;
+        mSize--;
+    }
+
+    /**
+     * Returns the row that holds the item with ID 'id'.
+     *
+     * @return the row, or -1 if there is none
+     */
+    int findRow(int id) {
+        return mTable[tableSlotFor(id)] - 1;
+    }
+
+    /**
+     * Returns the number of rows in use.
+     */
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the number of rows handed out so far, including rows that
+     * were freed. Rows of a store nothing is removed from are
+     * [0, getRowCount()).
+     */
+    int getRowCount() {
+        return mRowCount;
+    }
+
+    int getId(int row) {
+        return mIds[row];
+    }
+
+    int getGroupId(int row) {
+        return mGroupIds[row];
+    }
+
+    SublimeBaseMenuItem.ItemType getItemType(int row) {
+        return ITEM_TYPES[mInfo[row] & TYPE_MASK];
+    }
+
+    boolean showsIconSpace(int row) {
+        return (mInfo[row] & SHOWS_ICON_SPACE) != 0;
+    }
+
+    CharSequence getTitle(int row) {
+        return mTitles[row];
+    }
+
+    CharSequence getHint(int row) {
+        return mHints[row];
+    }
+
+    CharSequence getBadgeText(int row) {
+        return mBadgeTexts[row];
+    }
+
+    /**
+     * Returns the slot occupied by the row's item in the menu's
+     * item storage. See {@link SublimeBaseMenuItem#getSlot()}.
+     */
+    int getSlot(int row) {
+        return mSlots[row];
+    }
+
+    void setSlot(int row, int slot) {
+        mSlots[row] = slot;
+    }
+
+    /**
+     * Grows the store up front so that it can hold 'count' rows.
+     */
+    void ensureCapacity(int count) {
+        if (count <= mIds.length) return;
+
+        int capacity = mIds.length;
+
+        while (capacity < count) {
+            capacity <<= 1;
+        }
+
+        mIds = Arrays.copyOf(mIds, capacity);
+        mGroupIds = Arrays.copyOf(mGroupIds, capacity);
+        mSlots = Arrays.copyOf(mSlots, capacity);
+        mInfo = Arrays.copyOf(mInfo, capacity);
+        mTitles = Arrays.copyOf(mTitles, capacity);
+        mHints = Arrays.copyOf(mHints, capacity);
+        mBadgeTexts = Arrays.copyOf(mBadgeTexts, capacity);
+
+        // Rows keep their numbers, only the table is refilled
+        mTable = new int[capacity * 2];
+
+        for (int row = 0; row < mRowCount; row++) {
+            if (mSlots[row] > FREE) {
+                mTable[tableSlotFor(mIds[row])] = row + 1;
+            }
+        }
+    }
+
+    void clear() {
+        allocate(MIN_CAPACITY);
+    }
+
+    //----------------------------------------------------------------//
+    //------------------------------Table-----------------------------//
+    //----------------------------------------------------------------//
+
+    private static int hash(int id) {
+        // Same spreading as IntHashMap
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the table slot that holds 'id', or the empty
+     * slot at which 'id' would be inserted.
+     */
+    private int tableSlotFor(int id) {
+        int mask = mTable.length - 1;
+        int slot = hash(id) & mask;
+
+        while (mTable[slot] != 0 && mIds[mTable[slot] - 1] != id) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private void removeFromTable(int slot) {
+        mTable[slot] = 0;
+
+        // Shift back entries that probed past the freed slot
+        // so that lookups never stop early at a hole.
+        int mask = mTable.length - 1;
+        int next = (slot + 1) & mask;
+
+        while (mTable[next] != 0) {
+            int home = hash(mIds[mTable[next] - 1]) & mask;
+
+            boolean reachable = slot <= next ?
+                    (slot < home && home <= next)
+                    : (slot < home || home <= next);
+
+            if (!reachable) {
+                mTable[slot] = mTable[next];
+                mTable[next] = 0;
+                slot = next;
+            }
+
+            next = (next + 1) & mask;
+        }
+    }
+}
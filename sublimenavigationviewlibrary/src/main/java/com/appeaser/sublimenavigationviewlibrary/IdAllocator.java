@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 Vikram Kakkar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.appeaser.sublimenavigationviewlibrary;
+
+import java.util.BitSet;
+
+/**
+ * Hands out the lowest unused positive ID. Used IDs are tracked in a
+ * bitset, and the search for a free ID resumes where the previous one
+ * stopped - allocating 'n' IDs in a row is therefore linear overall.
+ *
+ * IDs above {@link #MAX_TRACKED_ID} (typically resource IDs from XML)
+ * are not tracked. Callers must still confirm that a returned ID is
+ * not taken by one of those.
+ */
+final class IdAllocator {
+
+    // Keeps the bitset at 8KB at most
+    static final int MAX_TRACKED_ID = 0xFFFF;
+
+    private final BitSet mUsed = new BitSet();
+
+    // Every ID below this one is known to be in use
+    private int mNextCandidate = 1;
+
+    /**
+     * Returns the lowest free ID &amp; marks it as used.
+     *
+     * @return a positive ID
+     */
+    int allocate() {
+        int id = mUsed.nextClearBit(mNextCandidate);
+        markUsed(id);
+        mNextCandidate = id + 1;
+        return id;
+    }
+
+    /**
+     * Marks 'id' as used so that it is never returned by {@link #allocate()}.
+     *
+     * @param id ID that is in use
+     */
+    void markUsed(int id) {
+        if (id > 0 && id <= MAX_TRACKED_ID) {
+            mUsed.set(id);
+        }
+    }
+
+    /**
+     * Makes 'id' available to {@link #allocate()} again.
+     *
+     * @param id ID that is no longer in use
+     */
+    void release(int id) {
+        if (id > 0 && id <= MAX_TRACKED_ID) {
+            mUsed.clear(id);
+
+            if (id < mNextCandidate) {
+                mNextCandidate = id;
+            }
+        }
+    }
+
+    void reset() {
+        mUsed.clear();
+        mNextCandidate = 1;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2015 Vikram Kakkar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.appeaser.sublimenavigationviewlibrary;
+
+import java.util.Arrays;
+
+/**
+ * Maps primitive int keys to objects using open addressing.
+ * Unlike {@link android.util.SparseArray}, which performs a binary
+ * search on every lookup, 'get', 'put' and 'remove' run in
+ * constant time on average. Used by {@link SublimeMenu} to look up
+ * items and groups by their IDs.
+ */
+final class IntHashMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] mKeys;
+    private Object[] mValues;
+    private int mSize;
+
+    IntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    IntHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(int expectedSize) {
+        // Keep the load factor at or below 0.5
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new int[capacity];
+        mValues = new Object[capacity];
+        mSize = 0;
+    }
+
+    private static int hash(int key) {
+        // Item/group IDs are often resource IDs which share
+        // their high bits - spread them before masking.
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the slot that holds 'key', or the empty
+     * slot at which 'key' would be inserted.
+     */
+    private int slotFor(int key) {
+        int mask = mKeys.length - 1;
+        int slot = hash(key) & mask;
+
+        while (mValues[slot] != null && mKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        return (V) mValues[slotFor(key)];
+    }
+
+    boolean containsKey(int key) {
+        return mValues[slotFor(key)] != null;
+    }
+
+    /**
+     * Associates 'value' with 'key', replacing the existing value, if any.
+     *
+     * @param key   key to map
+     * @param value non-null value
+     */
+    void put(int key, V value) {
+        int slot = slotFor(key);
+
+        if (mValues[slot] == null) {
+            if ((mSize + 1) * 2 > mKeys.length) {
+                resize(mKeys.length << 1);
+                slot = slotFor(key);
+            }
+
+            mKeys[slot] = key;
+            mSize++;
+        }
+
+        mValues[slot] = value;
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int slot = slotFor(key);
+        Object removed = mValues[slot];
+
+        if (removed == null) {
+            return null;
+        }
+
+        mValues[slot] = null;
+        mSize--;
+
+        // Shift back entries that probed past the freed slot
+        // so that lookups never stop early at a hole.
+        int mask = mKeys.length - 1;
+        int next = (slot + 1) & mask;
+
+        while (mValues[next] != null) {
+            int home = hash(mKeys[next]) & mask;
+
+            boolean reachable = slot <= next ?
+                    (slot < home && home <= next)
+                    : (slot < home || home <= next);
+
+            if (!reachable) {
+                mKeys[slot] = mKeys[next];
+                mValues[slot] = mValues[next];
+                mValues[next] = null;
+                slot = next;
+            }
+
+            next = (next + 1) & mask;
+        }
+
+        return (V) removed;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * Grows the table up front so that 'expectedSize' mappings
+     * can be added without further resizing.
+     *
+     * @param expectedSize number of mappings the table will hold
+     */
+    void ensureCapacity(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+
+        if (capacity > mKeys.length) {
+            resize(capacity);
+        }
+    }
+
+    void clear() {
+        Arrays.fill(mValues, null);
+        mSize = 0;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = mKeys;
+        Object[] oldValues = mValues;
+
+        allocate(capacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slotFor(oldKeys[i]);
+                mKeys[slot] = oldKeys[i];
+                mValues[slot] = oldValues[i];
+                mSize++;
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2015 Vikram Kakkar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.appeaser.sublimenavigationviewlibrary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes the changes that turn one list of presented rows into another.
+ * Rows are matched by key (item ID) - a row whose key is gone is removed,
+ * a row with a new key is inserted, and a row whose content hash differs
+ * is changed. Rows that are kept but out of order are moved: rows on a
+ * longest increasing subsequence stay put, so the number of moves is
+ * minimal.
+ *
+ * Works on plain arrays only, so that diffs can be computed away from
+ * the main thread. Runs in O((n + m) log (n + m)).
+ */
+final class MenuDiffer {
+
+    private MenuDiffer() {
+        // No instances
+    }
+
+    /**
+     * Computes the changes between two lists of rows. Changes use the
+     * positions the rows are at when the change is applied, in order:
+     * removals first, then moves &amp; insertions, then content changes.
+     *
+     * @param oldKeys   keys of the current rows
+     * @param oldHashes content hashes of the current rows
+     * @param newKeys   keys of the new rows
+     * @param newHashes content hashes of the new rows
+     * @return the changes, or 'null' if keys aren't unique - the
+     * lists can't be matched then
+     */
+    static List<SublimeMenu.Change> diff(int[] oldKeys, int[] oldHashes,
+                                         int[] newKeys, int[] newHashes) {
+        final int oldSize = oldKeys.length, newSize = newKeys.length;
+
+        IntHashMap<Integer> newPositions = new IntHashMap<>(newSize);
+
+        for (int i = 0; i < newSize; i++) {
+            if (newPositions.containsKey(newKeys[i])) {
+                return null;
+            }
+
+            newPositions.put(newKeys[i], i);
+        }
+
+        ArrayList<SublimeMenu.Change> changes = new ArrayList<>();
+
+        // Removals. Kept rows are collected in their current order.
+        IntHashMap<Integer> oldPositions = new IntHashMap<>(oldSize);
+        int[] keptTargets = new int[oldSize];
+        int[] keptSources = new int[oldSize];
+        int kept = 0, removed = 0;
+
+        for (int i = 0; i < oldSize; i++) {
+            if (oldPositions.containsKey(oldKeys[i])) {
+                return null;
+            }
+
+            oldPositions.put(oldKeys[i], i);
+
+            Integer target = newPositions.get(oldKeys[i]);
+
+            if (target == null) {
+                changes.add(new SublimeMenu.Change(SublimeMenu.Change.ChangeType.ITEM_REMOVED,
+                        i - removed, -1, -1, -1));
+                removed++;
+            } else {
+                keptTargets[kept] = target;
+                keptSources[kept] = i;
+                kept++;
+            }
+        }
+
+        // Kept rows that stay put
+        boolean[] anchored = longestIncreasingSubsequence(keptTargets, kept);
+
+        // Index among kept rows for each new row, -1 for new rows
+        int[] keptIndex = new int[newSize];
+        Arrays.fill(keptIndex, -1);
+
+        for (int k = 0; k < kept; k++) {
+            keptIndex[keptTargets[k]] = k;
+        }
+
+        // For each kept row, the target of the first anchored
+        // row that follows it, 'newSize' if there is none.
+        int[] nextAnchorTarget = new int[kept];
+        int next = newSize;
+
+        for (int k = kept - 1; k >= 0; k--) {
+            nextAnchorTarget[k] = next;
+
+            if (anchored[k]) {
+                next = keptTargets[k];
+            }
+        }
+
+        // While moves & insertions are applied, the rows between two
+        // anchored rows are: rows already placed (by target), followed by
+        // rows still waiting to be moved (by current order). 'placed'
+        // counts placed rows by target, 'waiting' counts rows waiting to
+        // be moved by their index among kept rows.
+        Fenwick placed = new Fenwick(newSize);
+        Fenwick waiting = new Fenwick(kept);
+
+        for (int k = 0; k < kept; k++) {
+            if (anchored[k]) {
+                placed.add(keptTargets[k], 1);
+            } else {
+                waiting.add(k, 1);
+            }
+        }
+
+        // Index among kept rows of the last anchored row placed so far
+        int lastAnchor = -1;
+
+        for (int j = 0; j < newSize; j++) {
+            int k = keptIndex[j];
+
+            if (k != -1 && anchored[k]) {
+                lastAnchor = k;
+                continue;
+            }
+
+            if (k == -1) {
+                changes.add(new SublimeMenu.Change(SublimeMenu.Change.ChangeType.ITEM_INSERTED,
+                        insertionPosition(placed, waiting, j, lastAnchor), -1, -1, -1));
+            } else {
+                int from = placed.sum(nextAnchorTarget[k]) + waiting.sum(k);
+                waiting.add(k, -1);
+                int to = insertionPosition(placed, waiting, j, lastAnchor);
+
+                if (from != to) {
+                    changes.add(new SublimeMenu.Change(SublimeMenu.Change.ChangeType.ITEM_MOVED,
+                            -1, from, to, -1));
+                }
+            }
+
+            placed.add(j, 1);
+        }
+
+        // Content changes, at final positions
+        for (int j = 0; j < newSize; j++) {
+            int k = keptIndex[j];
+
+            if (k != -1 && oldHashes[keptSources[k]] != newHashes[j]) {
+                changes.add(new SublimeMenu.Change(SublimeMenu.Change.ChangeType.ITEM_CHANGED,
+                        j, -1, -1, -1));
+            }
+        }
+
+        SublimeMenu.Change.coalesce(changes);
+        return changes;
+    }
+
+    /**
+     * Returns the position at which the row with target 'target' is to be
+     * inserted: after all placed rows with a smaller target, and after the
+     * waiting rows that precede the last anchored row placed so far.
+     */
+    private static int insertionPosition(Fenwick placed, Fenwick waiting,
+                                         int target, int lastAnchor) {
+        return placed.sum(target) + (lastAnchor == -1 ? 0 : waiting.sum(lastAnchor));
+    }
+
+    /**
+     * Marks the elements of a longest strictly increasing subsequence
+     * of values[0, size).
+     */
+    private static boolean[] longestIncreasingSubsequence(int[] values, int size) {
+        // tails[l] - index of the smallest tail of a subsequence of length l + 1
+        int[] tails = new int[size];
+        int[] previous = new int[size];
+        int length = 0;
+
+        for (int i = 0; i < size; i++) {
+            int low = 0, high = length;
+
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+
+                if (values[tails[mid]] < values[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+
+            if (low == length) {
+                length++;
+            }
+        }
+
+        boolean[] result = new boolean[size];
+
+        for (int i = length > 0 ? tails[length - 1] : -1; i != -1; i = previous[i]) {
+            result[i] = true;
+        }
+
+        return result;
+    }
+
+    /**
+     * Binary indexed tree - prefix sums with point updates in O(log n).
+     */
+    private static final class Fenwick {
+        private final int[] mTree;
+
+        Fenwick(int size) {
+            mTree = new int[size + 1];
+        }
+
+        void add(int index, int delta) {
+            for (int i = index + 1; i < mTree.length; i += i & -i) {
+                mTree[i] += delta;
+            }
+        }
+
+        /**
+         * Returns the sum of [0, end).
+         */
+        int sum(int end) {
+            int sum = 0;
+
+            for (int i = end; i > 0; i -= i & -i) {
+                sum += mTree[i];
+            }
+
+            return sum;
+        }
+    }
+}
@@ -22,7 +22,6 @@ import android.content.res.ColorStateList;
 import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
-import android.support.v4.graphics.drawable.DrawableCompat;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.view.View;
@@ -47,6 +46,12 @@ public class SublimeBaseItemView extends LinearLayout {
     protected SublimeBaseMenuItem mItemData;
     protected StateAwareImageView mIconHolder;
     protected ColorStateList mIconTintList;
+    TintedIconCache mIconCache;
+
+    // Themer background the row's background was copied from, and
+    // whether the row's drawable state includes CHECKED_STATE_SET
+    private Drawable mItemBackgroundSource;
+    private boolean mShowsCheckedState;
 
     public SublimeBaseItemView(Context context) {
         this(context, null);
@@ -84,9 +89,50 @@ public class SublimeBaseItemView extends LinearLayout {
         }
         setTitle(itemData.getTitle());
 
+        mIconCache = themer.getIconCache();
         setIconTintList(themer.getIconTintList());
         setIcon(itemData.getIcon());
+        applyHint(itemData, themer);
+
+        setItemChecked(itemData.isChecked());
+        applyItemBackground(themer);
+    }
+
+    /**
+     * Updates only the parts of this view that show the 'changedParts'
+     * of 'itemData'. Styling applied by
+     * {@link #initialize(SublimeBaseMenuItem, SublimeThemer)} is kept.
+     *
+     * @param itemData     item this view is bound to
+     * @param themer       themer the view was initialized with
+     * @param changedParts SublimeMenu.Change.PAYLOAD_* flags
+     */
+    public void update(SublimeBaseMenuItem itemData, SublimeThemer themer, int changedParts) {
+        mItemData = itemData;
+
+        if ((changedParts & SublimeMenu.Change.PAYLOAD_ENABLED) != 0) {
+            setEnabled(itemData.isEnabled());
+        }
 
+        if ((changedParts & SublimeMenu.Change.PAYLOAD_TITLE) != 0) {
+            setTitle(itemData.getTitle());
+        }
+
+        if ((changedParts & SublimeMenu.Change.PAYLOAD_ICON) != 0) {
+            setIcon(itemData.getIcon());
+        }
+
+        if ((changedParts & SublimeMenu.Change.PAYLOAD_HINT) != 0) {
+            applyHint(itemData, themer);
+        }
+
+        if ((changedParts & SublimeMenu.Change.PAYLOAD_CHECKED) != 0) {
+            setItemChecked(itemData.isChecked());
+            refreshDrawableState();
+        }
+    }
+
+    private void applyHint(SublimeBaseMenuItem itemData, SublimeThemer themer) {
         boolean showHint = !TextUtils.isEmpty(itemData.getHint());
         mHint.setVisibility(showHint ? View.VISIBLE : View.GONE);
         if (showHint) {
@@ -101,9 +147,6 @@ public class SublimeBaseItemView extends LinearLayout {
             }
             mHint.setText(itemData.getHint());
         }
-
-        setItemChecked(itemData.isChecked());
-        setItemBackground(themer.getItemBackground());
     }
 
     public SublimeBaseMenuItem getItemData() {
@@ -115,10 +158,13 @@ public class SublimeBaseItemView extends LinearLayout {
     }
 
     private Drawable prepareIcon(Drawable icon) {
-        icon = DrawableCompat.wrap(icon.getConstantState().newDrawable()).mutate();
-        icon.setBounds(0, 0, mIconSize, mIconSize);
-        DrawableCompat.setTintList(icon, mIconTintList);
-        return icon;
+        // Views that haven't been initialized with a themer
+        // prepare their own
+        if (mIconCache == null) {
+            return TintedIconCache.prepare(icon, mIconTintList, mIconSize);
+        }
+
+        return mIconCache.obtain(mIconHolder.getDrawable(), icon, mIconTintList, mIconSize);
     }
 
     public void setIcon(Drawable icon) {
@@ -127,6 +173,11 @@ public class SublimeBaseItemView extends LinearLayout {
             mIconHolder.setImageDrawable(prepareIcon(icon));
         } else {
             mIconHolder.setVisibility(View.GONE);
+
+            if (mIconCache != null && mIconHolder.getDrawable() != null) {
+                mIconCache.recycle(mIconHolder.getDrawable());
+                mIconHolder.setImageDrawable(null);
+            }
         }
     }
 
@@ -172,8 +223,26 @@ public class SublimeBaseItemView extends LinearLayout {
         mIconHolder.setItemChecked(mItemData.isChecked());
     }
 
+    /**
+     * Sets the themer's item background, unless this row already
+     * has a copy of it. Otherwise, only refreshes the drawable
+     * state if the checked state of the row changed.
+     */
+    private void applyItemBackground(SublimeThemer themer) {
+        Drawable source = themer.getItemBackgroundSource();
+
+        if (source != mItemBackgroundSource) {
+            setItemBackground(themer.getItemBackground());
+            mItemBackgroundSource = source;
+        } else if (mShowsCheckedState != showsCheckedState()) {
+            refreshDrawableState();
+        }
+    }
+
     @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
     public void setItemBackground(Drawable itemBackground) {
+        mItemBackgroundSource = null;
+
         if (isJBorHigher) {
             setBackground(itemBackground);
         } else {
@@ -183,10 +252,15 @@ public class SublimeBaseItemView extends LinearLayout {
         refreshDrawableState();
     }
 
+    private boolean showsCheckedState() {
+        return mItemData != null && mItemData.isCheckable() && mItemData.isChecked();
+    }
+
     @Override
     protected int[] onCreateDrawableState(int extraSpace) {
         int[] drawableState = super.onCreateDrawableState(extraSpace + 1);
-        if (mItemData != null && mItemData.isCheckable() && mItemData.isChecked()) {
+        mShowsCheckedState = showsCheckedState();
+        if (mShowsCheckedState) {
             mergeDrawableStates(drawableState, CHECKED_STATE_SET);
         }
 
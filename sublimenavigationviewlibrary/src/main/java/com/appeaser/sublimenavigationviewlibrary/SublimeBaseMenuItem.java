@@ -76,6 +76,26 @@ public abstract class SublimeBaseMenuItem implements Parcelable {
 
     private boolean mBlockUpdates;
 
+    /**
+     * Slot this item occupies in the parent menu's item storage.
+     * Maintained by {@link AdapterPositionIndex}: -1 if the item
+     * has not been added.
+     */
+    private int mSlot = -1;
+
+    /**
+     * Content hash of this item when its row was last bound.
+     * Maintained by {@link SublimeMenuPresenter}.
+     */
+    private int mBoundContentHash;
+    private boolean mBound;
+
+    /**
+     * Parts of this item (Change.PAYLOAD_*) that changed since the
+     * parent menu was last notified. '0' if unknown.
+     */
+    private int mChangedParts;
+
     /**
      * Instantiates this menu item.
      *
@@ -175,6 +195,25 @@ public abstract class SublimeBaseMenuItem implements Parcelable {
         return false;
     }
 
+    /**
+     * Records that 'part' (one of Change.PAYLOAD_*) of this item
+     * has changed, so that its row can be updated partially.
+     */
+    void markChanged(int part) {
+        mChangedParts |= part;
+    }
+
+    /**
+     * Returns &amp; resets the parts of this item that have changed.
+     *
+     * @return Change.PAYLOAD_* flags, or '0' if unknown
+     */
+    int takeChangedParts() {
+        int changedParts = mChangedParts;
+        mChangedParts = 0;
+        return changedParts;
+    }
+
     protected void attemptItemUpdate() {
         if (mBlockUpdates) {
             return;
@@ -185,7 +224,23 @@ public abstract class SublimeBaseMenuItem implements Parcelable {
             mInvalidateEntireMenu = false;
             mMenu.onItemsChanged();
         } else {
-            mMenu.onItemChanged(getItemId());
+            mMenu.onItemChanged(this);
+        }
+    }
+
+    /**
+     * Same as {@link #attemptItemUpdate()}, but for changes
+     * that cannot affect the item's visibility.
+     */
+    private void attemptItemStateUpdate() {
+        if (mBlockUpdates) {
+            return;
+        }
+
+        if (mInvalidateEntireMenu) {
+            attemptItemUpdate();
+        } else {
+            mMenu.onItemStateChanged(this);
         }
     }
 
@@ -198,6 +253,7 @@ public abstract class SublimeBaseMenuItem implements Parcelable {
      */
     public SublimeBaseMenuItem setValueProvidedAsync(boolean valueProvidedAsync) {
         mValueProvidedAsync = valueProvidedAsync;
+        markChanged(SublimeMenu.Change.PAYLOAD_BADGE);
         attemptItemUpdate();
         return this;
     }
@@ -222,6 +278,7 @@ public abstract class SublimeBaseMenuItem implements Parcelable {
             mFlags &= ~ENABLED;
         }
 
+        markChanged(SublimeMenu.Change.PAYLOAD_ENABLED);
         attemptItemUpdate();
         return this;
     }
@@ -253,6 +310,7 @@ public abstract class SublimeBaseMenuItem implements Parcelable {
 
     public SublimeBaseMenuItem setTitle(CharSequence title) {
         mTitle = title;
+        markChanged(SublimeMenu.Change.PAYLOAD_TITLE);
         attemptItemUpdate();
         return this;
     }
@@ -270,6 +328,7 @@ public abstract class SublimeBaseMenuItem implements Parcelable {
 
     public SublimeBaseMenuItem setHint(CharSequence hint) {
         mHint = hint;
+        markChanged(SublimeMenu.Change.PAYLOAD_HINT);
         attemptItemUpdate();
         return this;
     }
@@ -298,12 +357,21 @@ public abstract class SublimeBaseMenuItem implements Parcelable {
         return null;
     }
 
+    /**
+     * Returns 'true' if {@link #getIcon()} returns an icon - without
+     * loading it.
+     */
+    boolean hasIcon() {
+        return mIconDrawable != null || mIconResId != NO_ICON || mShowsIconSpace;
+    }
+
     public boolean showsIconSpace() {
         return mShowsIconSpace;
     }
 
     public SublimeBaseMenuItem setShowsIconSpace(boolean showsIconSpace) {
         mShowsIconSpace = showsIconSpace;
+        markChanged(SublimeMenu.Change.PAYLOAD_ICON);
         attemptItemUpdate();
         return this;
     }
@@ -322,9 +390,8 @@ public abstract class SublimeBaseMenuItem implements Parcelable {
         mIconDrawable = null;
         mIconResId = iconResId;
 
-        // If we have a view, we need to push the Drawable to them
-        mInvalidateEntireMenu = true;
-
+        // If we have a view, we need to push the Drawable to it
+        markChanged(SublimeMenu.Change.PAYLOAD_ICON);
         attemptItemUpdate();
         return this;
     }
@@ -337,6 +404,7 @@ public abstract class SublimeBaseMenuItem implements Parcelable {
         final int oldFlags = mFlags;
         mFlags = (mFlags & ~CHECKABLE) | (checkable ? CHECKABLE : 0);
         if (oldFlags != mFlags) {
+            markChanged(SublimeMenu.Change.PAYLOAD_CHECKED);
             attemptItemUpdate();
         }
 
@@ -366,7 +434,9 @@ public abstract class SublimeBaseMenuItem implements Parcelable {
         final int oldFlags = mFlags;
         mFlags = (mFlags & ~CHECKED) | (checkedInt ? CHECKED : 0);
         if (oldFlags != mFlags) {
-            attemptItemUpdate();
+            mMenu.onItemCheckedStateChanged(this);
+            markChanged(SublimeMenu.Change.PAYLOAD_CHECKED);
+            attemptItemStateUpdate();
         }
 
         return this;
@@ -387,7 +457,13 @@ public abstract class SublimeBaseMenuItem implements Parcelable {
     boolean setVisibleInt(boolean shown) {
         final int oldFlags = mFlags;
         mFlags = (mFlags & ~HIDDEN) | (shown ? 0 : HIDDEN);
-        return oldFlags != mFlags;
+
+        if (oldFlags != mFlags) {
+            mMenu.onItemVisibilityChanged(this);
+            return true;
+        }
+
+        return false;
     }
 
     public SublimeBaseMenuItem setVisible(boolean shown) {
@@ -414,6 +490,57 @@ public abstract class SublimeBaseMenuItem implements Parcelable {
         return mFlags;
     }
 
+    /**
+     * Returns the position of this item in the parent menu.
+     *
+     * @return position, or -1 if the item has not been added
+     */
+    int getPositionInMenu() {
+        return mSlot == -1 ? -1 : mMenu.getPositionForSlot(mSlot);
+    }
+
+    int getSlot() {
+        return mSlot;
+    }
+
+    void setSlot(int slot) {
+        mSlot = slot;
+    }
+
+    /**
+     * Returns a hash of the state this item's row displays. Two
+     * snapshots of an item with equal hashes present the same row.
+     *
+     * @return content hash
+     */
+    int getContentHash() {
+        int hash = mItemType.ordinal();
+        hash = 31 * hash + hashOf(mTitle);
+        hash = 31 * hash + hashOf(mHint);
+        hash = 31 * hash + mIconResId;
+        hash = 31 * hash + mFlags;
+        hash = 31 * hash + (mShowsIconSpace ? 1 : 0);
+        hash = 31 * hash + (mValueProvidedAsync ? 1 : 0);
+        return hash;
+    }
+
+    static int hashOf(CharSequence text) {
+        return text == null ? 0 : text.toString().hashCode();
+    }
+
+    boolean isBound() {
+        return mBound;
+    }
+
+    int getBoundContentHash() {
+        return mBoundContentHash;
+    }
+
+    void setBoundContentHash(int contentHash) {
+        mBoundContentHash = contentHash;
+        mBound = true;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof SublimeBaseMenuItem)) {
@@ -0,0 +1,536 @@
+/*
+ * Copyright 2015 Vikram Kakkar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.appeaser.sublimenavigationviewlibrary;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.text.Layout;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+/**
+ * Single-view row for Text &amp; Text with Badge menu items. Draws the
+ * icon, title, hint &amp; badge itself, so there is one view to measure
+ * &amp; lay out per row instead of an icon holder, two text views and
+ * a badge. Text layouts come from a {@link TextLayoutCache} shared by
+ * the rows of a menu, &amp; are kept between binds until the text, its
+ * styling or the available width changes.
+ * <p/>
+ * Used in place of {@link SublimeTextItemView} &amp;
+ * {@link SublimeTextWithBadgeItemView} when flat rows are turned on -
+ * see {@link SublimeMenuPresenter#setUsesFlatRows(boolean)}.
+ */
+public class SublimeFlatItemView extends View {
+    private static final String TAG = SublimeFlatItemView.class.getSimpleName();
+
+    // Drawable state set - checked
+    private static final int[] CHECKED_STATE_SET = {
+            R.attr.state_item_checked
+    };
+
+    private static final boolean isJBorHigher
+            = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+
+    private final int mIconSize, mIconPadding;
+
+    private TextLayoutCache mTextLayoutCache;
+    private TextLayoutCache.Style mTitleStyle, mHintStyle, mBadgeStyle;
+
+    private SublimeBaseMenuItem mItemData;
+    private Drawable mIcon;
+    private TintedIconCache mIconCache;
+    private ColorStateList mIconTintList, mTitleColor, mHintColor, mBadgeColor;
+    private int mTitleTextColor, mHintTextColor, mBadgeTextColor;
+    private CharSequence mTitle = "", mHint, mBadgeText;
+    private Layout mTitleLayout, mHintLayout, mBadgeLayout;
+    private int mBadgeWidth;
+
+    // Width the text layouts were built for, -1 if they have to be rebuilt
+    private int mLayoutWidth = -1;
+
+    // State of the icon & text - unlike the row background, these
+    // show the checked state for items that aren't checkable too
+    private int[] mContentState;
+
+    // Themer background the row's background was copied from, and
+    // whether the row's drawable state includes CHECKED_STATE_SET
+    private Drawable mItemBackgroundSource;
+    private boolean mShowsCheckedState;
+
+    public SublimeFlatItemView(Context context) {
+        this(context, null);
+    }
+
+    public SublimeFlatItemView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public SublimeFlatItemView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        mIconSize = context.getResources().getDimensionPixelSize(R.dimen.snv_navigation_icon_size);
+        mIconPadding = context.getResources()
+                .getDimensionPixelSize(R.dimen.snv_navigation_icon_padding);
+    }
+
+    /**
+     * Sets the cache text layouts are taken from - the rows
+     * of a menu share their presenter's cache.
+     */
+    void setTextLayoutCache(TextLayoutCache textLayoutCache) {
+        if (textLayoutCache != mTextLayoutCache) {
+            mTextLayoutCache = textLayoutCache;
+            mTitleStyle = mHintStyle = mBadgeStyle = null;
+            onContentChanged(true);
+        }
+    }
+
+    private TextLayoutCache getTextLayoutCache() {
+        if (mTextLayoutCache == null) {
+            // Not bound by a presenter
+            mTextLayoutCache = new TextLayoutCache(getContext());
+        }
+
+        return mTextLayoutCache;
+    }
+
+    public void initialize(SublimeBaseMenuItem itemData, SublimeThemer themer) {
+        mItemData = itemData;
+        setVisibility(itemData.isVisible() ? View.VISIBLE : View.GONE);
+        setEnabled(itemData.isEnabled());
+
+        TextLayoutCache textLayoutCache = getTextLayoutCache();
+        TextLayoutCache.Style titleStyle = textLayoutCache.getStyle(TextLayoutCache.TITLE,
+                themer.getItemStyleProfile());
+        TextLayoutCache.Style hintStyle = textLayoutCache.getStyle(TextLayoutCache.HINT,
+                themer.getItemHintStyleProfile());
+        TextLayoutCache.Style badgeStyle = textLayoutCache.getStyle(TextLayoutCache.BADGE,
+                themer.getBadgeStyleProfile());
+
+        if (titleStyle != mTitleStyle || hintStyle != mHintStyle || badgeStyle != mBadgeStyle) {
+            mTitleStyle = titleStyle;
+            mHintStyle = hintStyle;
+            mBadgeStyle = badgeStyle;
+            onContentChanged(true);
+        }
+
+        mTitleColor = themer.getItemStyleProfile().getTextColor();
+        mHintColor = themer.getItemHintStyleProfile().getTextColor();
+        mBadgeColor = themer.getBadgeStyleProfile().getTextColor();
+        mContentState = null;
+
+        mIconTintList = themer.getIconTintList();
+        mIconCache = themer.getIconCache();
+        setIcon(itemData.getIcon());
+        setTitle(itemData.getTitle());
+        setHint(itemData.getHint());
+        applyBadge(itemData);
+
+        applyItemBackground(themer);
+    }
+
+    /**
+     * Updates only the parts of this view that show the 'changedParts'
+     * of 'itemData'. Styling applied by
+     * {@link #initialize(SublimeBaseMenuItem, SublimeThemer)} is kept.
+     *
+     * @param itemData     item this view is bound to
+     * @param themer       themer the view was initialized with
+     * @param changedParts SublimeMenu.Change.PAYLOAD_* flags
+     */
+    public void update(SublimeBaseMenuItem itemData, SublimeThemer themer, int changedParts) {
+        mItemData = itemData;
+
+        if ((changedParts & SublimeMenu.Change.PAYLOAD_ENABLED) != 0) {
+            setEnabled(itemData.isEnabled());
+        }
+
+        if ((changedParts & SublimeMenu.Change.PAYLOAD_TITLE) != 0) {
+            setTitle(itemData.getTitle());
+        }
+
+        if ((changedParts & SublimeMenu.Change.PAYLOAD_ICON) != 0) {
+            setIcon(itemData.getIcon());
+        }
+
+        if ((changedParts & SublimeMenu.Change.PAYLOAD_HINT) != 0) {
+            setHint(itemData.getHint());
+        }
+
+        if ((changedParts & SublimeMenu.Change.PAYLOAD_BADGE) != 0) {
+            applyBadge(itemData);
+        }
+
+        if ((changedParts & SublimeMenu.Change.PAYLOAD_CHECKED) != 0) {
+            refreshDrawableState();
+        }
+    }
+
+    public SublimeBaseMenuItem getItemData() {
+        return mItemData;
+    }
+
+    public void setTitle(CharSequence title) {
+        if (title == null) {
+            title = "";
+        }
+
+        if (!TextUtils.equals(title, mTitle)) {
+            mTitle = title;
+            onContentChanged(false);
+        }
+    }
+
+    public void setHint(CharSequence hint) {
+        if (TextUtils.isEmpty(hint)) {
+            hint = null;
+        }
+
+        if (!TextUtils.equals(hint, mHint)) {
+            boolean hintToggled = (hint == null) != (mHint == null);
+            mHint = hint;
+            onContentChanged(hintToggled);
+        }
+    }
+
+    private void applyBadge(SublimeBaseMenuItem itemData) {
+        // Rows for badges provided asynchronously show a progress bar,
+        // those aren't flat - see SublimeMenuPresenter
+        CharSequence badgeText = itemData.getItemType() == SublimeBaseMenuItem.ItemType.BADGE ?
+                ((SublimeTextWithBadgeMenuItem) itemData).getBadgeText() : null;
+
+        if (TextUtils.isEmpty(badgeText)) {
+            badgeText = null;
+        }
+
+        if (!TextUtils.equals(badgeText, mBadgeText)) {
+            boolean badgeToggled = (badgeText == null) != (mBadgeText == null);
+            mBadgeText = badgeText;
+            onContentChanged(badgeToggled);
+        }
+    }
+
+    private Drawable prepareIcon(Drawable icon) {
+        // Rows that haven't been initialized with a themer
+        // prepare their own
+        if (mIconCache == null) {
+            return TintedIconCache.prepare(icon, mIconTintList, mIconSize);
+        }
+
+        return mIconCache.obtain(mIcon, icon, mIconTintList, mIconSize);
+    }
+
+    public void setIcon(Drawable icon) {
+        boolean iconToggled = (icon == null) != (mIcon == null);
+        Drawable prepared = icon != null ? prepareIcon(icon) : null;
+
+        if (prepared == mIcon) {
+            // Same icon, nothing to draw again
+            return;
+        }
+
+        if (mIcon != null) {
+            mIcon.setCallback(null);
+
+            if (prepared == null && mIconCache != null) {
+                mIconCache.recycle(mIcon);
+            }
+        }
+
+        mIcon = prepared;
+
+        if (mIcon != null) {
+            mIcon.setCallback(this);
+            mIcon.setState(getContentState());
+        }
+
+        if (iconToggled) {
+            // Text moves over
+            onContentChanged(true);
+        } else {
+            invalidate();
+        }
+    }
+
+    /**
+     * Drops the text layouts. Layout is only requested if the size
+     * of the content may change - rows have a fixed height, so
+     * a new title is just drawn again.
+     */
+    private void onContentChanged(boolean sizeMayChange) {
+        mLayoutWidth = -1;
+
+        if (sizeMayChange) {
+            requestLayout();
+        }
+
+        invalidate();
+    }
+
+    /**
+     * Sets the themer's item background, unless this row already
+     * has a copy of it. Otherwise, only refreshes the drawable
+     * state if the checked state of the row changed.
+     */
+    private void applyItemBackground(SublimeThemer themer) {
+        Drawable source = themer.getItemBackgroundSource();
+
+        if (source != mItemBackgroundSource) {
+            setItemBackground(themer.getItemBackground());
+            mItemBackgroundSource = source;
+        } else if (mShowsCheckedState != showsCheckedState()) {
+            refreshDrawableState();
+        } else {
+            // The row's state is the same, the item's may not be
+            refreshContentState();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    public void setItemBackground(Drawable itemBackground) {
+        mItemBackgroundSource = null;
+
+        if (isJBorHigher) {
+            setBackground(itemBackground);
+        } else {
+            setBackgroundDrawable(itemBackground);
+        }
+
+        refreshDrawableState();
+    }
+
+    /**
+     * Takes the text layouts for a row 'width' pixels wide from the
+     * cache, unless the row already has them for that width.
+     */
+    private void ensureLayouts(int width) {
+        if (width == mLayoutWidth || mTitleStyle == null) {
+            return;
+        }
+
+        mLayoutWidth = width;
+
+        TextLayoutCache textLayoutCache = getTextLayoutCache();
+        int textWidth = textLayoutCache.getTextWidth(
+                width - getPaddingLeft() - getPaddingRight(), mIcon != null);
+
+        if (mBadgeText != null) {
+            Layout badgeLayout = textLayoutCache.get(mBadgeText, mBadgeStyle,
+                    TextLayoutCache.NATURAL_WIDTH);
+            mBadgeWidth = textLayoutCache.getBadgeWidth(badgeLayout, textWidth);
+
+            // Ellipsized if it doesn't fit
+            mBadgeLayout = badgeLayout.getWidth() > mBadgeWidth ?
+                    textLayoutCache.get(mBadgeText, mBadgeStyle, mBadgeWidth) : badgeLayout;
+            textWidth -= mBadgeWidth;
+        } else {
+            mBadgeLayout = null;
+        }
+
+        mTitleLayout = textLayoutCache.get(mTitle, mTitleStyle, textWidth);
+        mHintLayout = mHint != null ? textLayoutCache.get(mHint, mHintStyle, textWidth) : null;
+    }
+
+    private static int getLineHeight(Layout layout) {
+        return layout != null ? layout.getLineBottom(0) : 0;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec);
+        ensureLayouts(width);
+
+        int contentHeight = Math.max(getLineHeight(mTitleLayout) + getLineHeight(mHintLayout),
+                Math.max(getLineHeight(mBadgeLayout), mIcon != null ? mIconSize : 0));
+        int height = Math.max(getSuggestedMinimumHeight(),
+                contentHeight + getPaddingTop() + getPaddingBottom());
+
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        ensureLayouts(getWidth());
+
+        int left = getPaddingLeft();
+        int contentTop = getPaddingTop();
+        int contentHeight = getHeight() - getPaddingTop() - getPaddingBottom();
+
+        if (mIcon != null) {
+            int iconTop = contentTop + (contentHeight - mIconSize) / 2;
+            mIcon.setBounds(left, iconTop, left + mIconSize, iconTop + mIconSize);
+            mIcon.draw(canvas);
+            left += mIconSize + mIconPadding;
+        }
+
+        if (mTitleLayout == null) {
+            return;
+        }
+
+        // Sets the text colors
+        getContentState();
+
+        int titleHeight = getLineHeight(mTitleLayout);
+        int textTop = contentTop
+                + (contentHeight - titleHeight - getLineHeight(mHintLayout)) / 2;
+        drawLine(canvas, mTitleLayout, mTitleTextColor, left, textTop);
+
+        if (mHintLayout != null) {
+            drawLine(canvas, mHintLayout, mHintTextColor, left, textTop + titleHeight);
+        }
+
+        if (mBadgeLayout != null) {
+            drawLine(canvas, mBadgeLayout, mBadgeTextColor, getWidth() - getPaddingRight()
+                            - (mBadgeWidth + mBadgeLayout.getWidth()) / 2,
+                    contentTop + (contentHeight - getLineHeight(mBadgeLayout)) / 2);
+        }
+    }
+
+    /**
+     * Draws the first line of 'layout' in 'color'. Layouts are shared
+     * between rows, so the color is set on the layout's paint each time.
+     */
+    private static void drawLine(Canvas canvas, Layout layout, int color, int left, int top) {
+        layout.getPaint().setColor(color);
+
+        int saveCount = canvas.save();
+        canvas.translate(left, top);
+        canvas.clipRect(0, 0, layout.getWidth(), getLineHeight(layout));
+        layout.draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    private boolean showsCheckedState() {
+        return mItemData != null && mItemData.isCheckable() && mItemData.isChecked();
+    }
+
+    @Override
+    protected int[] onCreateDrawableState(int extraSpace) {
+        int[] drawableState = super.onCreateDrawableState(extraSpace + 1);
+        mShowsCheckedState = showsCheckedState();
+        if (mShowsCheckedState) {
+            mergeDrawableStates(drawableState, CHECKED_STATE_SET);
+        }
+
+        return drawableState;
+    }
+
+    @Override
+    protected void drawableStateChanged() {
+        super.drawableStateChanged();
+        refreshContentState();
+    }
+
+    private void refreshContentState() {
+        mContentState = null;
+
+        int[] state = getContentState();
+
+        if (mIcon != null) {
+            mIcon.setState(state);
+        }
+
+        invalidate();
+    }
+
+    /**
+     * Returns the state of the icon &amp; text, and picks
+     * the text colors for it.
+     */
+    private int[] getContentState() {
+        if (mContentState != null) {
+            return mContentState;
+        }
+
+        int[] state = getDrawableState();
+
+        if (mItemData != null && mItemData.isChecked() && !mItemData.isCheckable()) {
+            // Entries after the first 0 are ignored
+            int length = 0;
+            while (length < state.length && state[length] != 0) {
+                length++;
+            }
+
+            int[] checkedState = new int[length + 1];
+            System.arraycopy(state, 0, checkedState, 0, length);
+            checkedState[length] = CHECKED_STATE_SET[0];
+            state = checkedState;
+        }
+
+        mTitleTextColor = getColorForState(mTitleColor, state);
+        mHintTextColor = getColorForState(mHintColor, state);
+        mBadgeTextColor = getColorForState(mBadgeColor, state);
+
+        mContentState = state;
+        return state;
+    }
+
+    private static int getColorForState(ColorStateList colors, int[] state) {
+        return colors != null ? colors.getColorForState(state, colors.getDefaultColor()) : 0;
+    }
+
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        return who == mIcon || super.verifyDrawable(who);
+    }
+
+    @Override
+    public void jumpDrawablesToCurrentState() {
+        super.jumpDrawablesToCurrentState();
+        if (mIcon != null) {
+            mIcon.jumpToCurrentState();
+        }
+    }
+
+    //---Accessibility---//
+
+    /**
+     * Text read out for this row - there are no child
+     * views for accessibility services to find it in.
+     */
+    private CharSequence getAccessibilityText() {
+        StringBuilder text = new StringBuilder(mTitle);
+
+        if (mHint != null) {
+            text.append(", ").append(mHint);
+        }
+
+        if (mBadgeText != null) {
+            text.append(", ").append(mBadgeText);
+        }
+
+        return text;
+    }
+
+    @Override
+    public void onPopulateAccessibilityEvent(AccessibilityEvent event) {
+        super.onPopulateAccessibilityEvent(event);
+        event.getText().add(getAccessibilityText());
+    }
+
+    @Override
+    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+        super.onInitializeAccessibilityNodeInfo(info);
+        info.setText(getAccessibilityText());
+    }
+}
@@ -33,6 +33,18 @@ public class SublimeGroup implements Parcelable {
     private boolean mIsCollapsible, mStateCollapsed, mEnabled, mVisible;
     private CheckableBehavior mCheckableBehavior;
 
+    // Range bookkeeping - maintained by the parent menu.
+    // Members of a group are always placed next to each
+    // other, so the first & last members describe the range
+    // this group occupies in the menu.
+    private SublimeBaseMenuItem mFirstItem, mLastItem, mHeaderItem;
+    private int mItemCount, mVisibleItemCount;
+
+    // Last member whose checked state was set to 'true'.
+    // With CheckableBehavior.SINGLE, this is the only
+    // member that can be checked.
+    private SublimeBaseMenuItem mCheckedItem;
+
     public SublimeGroup(SublimeMenu menu, int groupId,
                         boolean isCollapsible, boolean stateCollapsed,
                         boolean enabled, boolean visible,
@@ -115,7 +127,7 @@ public class SublimeGroup implements Parcelable {
      * 'false' otherwise
      */
     public boolean isCollapsible() {
-        return mIsCollapsible && mMenu.groupHasVisibleItems(getGroupId());
+        return mIsCollapsible && mVisibleItemCount > 0;
     }
 
     /**
@@ -192,6 +204,191 @@ public class SublimeGroup implements Parcelable {
         return this;
     }
 
+    //----------------------------------------------------------------//
+    //-------------------------Range bookkeeping----------------------//
+    //----------------------------------------------------------------//
+
+    /**
+     * Returns the member of this group that appears first in the menu.
+     *
+     * @return first member, or 'null' if the group has no members
+     */
+    SublimeBaseMenuItem getFirstItem() {
+        return mFirstItem;
+    }
+
+    /**
+     * Returns the member of this group that appears last in the menu.
+     *
+     * @return last member, or 'null' if the group has no members
+     */
+    SublimeBaseMenuItem getLastItem() {
+        return mLastItem;
+    }
+
+    /**
+     * Returns the GROUP_HEADER of this group.
+     *
+     * @return header item, or 'null' if the group does not have one
+     */
+    SublimeBaseMenuItem getHeaderItem() {
+        return mHeaderItem;
+    }
+
+    /**
+     * Returns the number of members currently in this group.
+     *
+     * @return member count
+     */
+    int getItemCount() {
+        return mItemCount;
+    }
+
+    /**
+     * Returns the number of members that are currently visible.
+     * The visibility of the group itself is not taken into account.
+     *
+     * @return visible member count
+     */
+    int getVisibleItemCount() {
+        return mVisibleItemCount;
+    }
+
+    /**
+     * Called by the parent menu after the visibility of 'item' changes.
+     *
+     * @param item member whose visibility has changed
+     */
+    void onMemberVisibilityChanged(SublimeBaseMenuItem item) {
+        mVisibleItemCount += item.isVisible() ? 1 : -1;
+    }
+
+    /**
+     * Returns the member that was checked most recently.
+     *
+     * @return checked member, or 'null' if no member is checked
+     */
+    SublimeBaseMenuItem getCheckedItem() {
+        return mCheckedItem;
+    }
+
+    /**
+     * Called by the parent menu after the checked state of 'item' changes.
+     *
+     * @param item member whose checked state has changed
+     */
+    void onMemberCheckedStateChanged(SublimeBaseMenuItem item) {
+        if (item.isChecked()) {
+            mCheckedItem = item;
+        } else if (item == mCheckedItem) {
+            mCheckedItem = null;
+        }
+    }
+
+    /**
+     * Called by the parent menu after 'item' has been placed in the menu.
+     * The item's position must already be up-to-date.
+     *
+     * @param item newly added member
+     */
+    void onMemberAdded(SublimeBaseMenuItem item) {
+        int position = item.getPositionInMenu();
+
+        if (mItemCount == 0 || position < mFirstItem.getPositionInMenu()) {
+            mFirstItem = item;
+        }
+
+        if (mItemCount == 0 || position > mLastItem.getPositionInMenu()) {
+            mLastItem = item;
+        }
+
+        if (item.getItemType() == SublimeBaseMenuItem.ItemType.GROUP_HEADER) {
+            mHeaderItem = item;
+        }
+
+        if (mCheckedItem == null && item.isChecked()) {
+            mCheckedItem = item;
+        }
+
+        if (item.isVisible()) {
+            mVisibleItemCount++;
+        }
+
+        mItemCount++;
+    }
+
+    /**
+     * Called by the parent menu after 'count' members that have not been
+     * created yet (see {@link SublimeMenu#setStoresItemsCompactly(boolean)})
+     * have been placed in the menu. Such members are visible, and the
+     * menu creates the ones that become the first or last member.
+     *
+     * @param count number of members added
+     */
+    void onCompactMembersAdded(int count) {
+        mItemCount += count;
+        mVisibleItemCount += count;
+    }
+
+    /**
+     * Called by the parent menu after a member that had not been created
+     * yet has been taken out of the menu.
+     */
+    void onCompactMemberRemoved() {
+        mItemCount--;
+        mVisibleItemCount--;
+    }
+
+    /**
+     * Called by the parent menu after 'item' has been taken out of the menu.
+     *
+     * @param item     member that was removed
+     * @param previous item that preceded the removed member, or 'null'
+     * @param next     item that followed the removed member, or 'null'
+     */
+    void onMemberRemoved(SublimeBaseMenuItem item,
+                         SublimeBaseMenuItem previous, SublimeBaseMenuItem next) {
+        mItemCount--;
+
+        if (item.isVisible()) {
+            mVisibleItemCount--;
+        }
+
+        if (mItemCount == 0) {
+            mFirstItem = null;
+            mLastItem = null;
+        } else {
+            if (item == mFirstItem) {
+                mFirstItem = next;
+            }
+
+            if (item == mLastItem) {
+                mLastItem = previous;
+            }
+        }
+
+        if (item == mHeaderItem) {
+            mHeaderItem = null;
+        }
+
+        if (item == mCheckedItem) {
+            mCheckedItem = null;
+        }
+    }
+
+    /**
+     * Forgets about all members. Used when the parent menu is cleared
+     * or restored.
+     */
+    void resetMembers() {
+        mFirstItem = null;
+        mLastItem = null;
+        mHeaderItem = null;
+        mCheckedItem = null;
+        mItemCount = 0;
+        mVisibleItemCount = 0;
+    }
+
     //----------------------------------------------------------------//
     //---------------------------Parcelable---------------------------//
     //----------------------------------------------------------------//
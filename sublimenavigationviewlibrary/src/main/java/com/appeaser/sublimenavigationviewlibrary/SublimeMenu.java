@@ -18,13 +18,21 @@ package com.appeaser.sublimenavigationviewlibrary;
 
 import android.content.Context;
 import android.content.res.Resources;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.Nullable;
 import android.util.Log;
 import android.util.SparseArray;
+import android.view.Choreographer;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -57,27 +65,102 @@ public class SublimeMenu implements Parcelable {
     private Callback mCallback;
 
     /**
-     * Contains all of the items for this menu
+     * Items shown by the presenter, in menu order. Kept up-to-date as items
+     * &amp; groups change, so that a change only touches the affected range.
+     * It is rebuilt from scratch in {@link #getAdapterData()}. Also serves as
+     * the storage for all items of this menu.
      */
-    private ArrayList<SublimeBaseMenuItem> mItems = new ArrayList<>();
+    private final AdapterPositionIndex mAdapterData = new AdapterPositionIndex();
+
+    /**
+     * Contains all of the items for this menu - a read-only view of
+     * {@link #mAdapterData}, which is updated through
+     * {@link #insertItem(int, SublimeBaseMenuItem)} &amp;
+     * {@link #removeItemAt(int)}.
+     */
+    private final List<SublimeBaseMenuItem> mItems = mAdapterData.getMenuItems();
+
+    /**
+     * Index of the items in {@link #mItems} keyed by their ID. Kept in sync
+     * by {@link #insertItem(int, SublimeBaseMenuItem)} &amp;
+     * {@link #removeItemAt(int)}.
+     */
+    private IntHashMap<SublimeBaseMenuItem> mItemsById = new IntHashMap<>();
 
     /**
      * Contains all of the groups for this menu
      */
     private ArrayList<SublimeGroup> mGroups = new ArrayList<>();
 
+    /**
+     * Index of the groups in {@link #mGroups} keyed by their ID.
+     */
+    private IntHashMap<SublimeGroup> mGroupsById = new IntHashMap<>();
+
+    /**
+     * Provide IDs for items &amp; groups created without one.
+     */
+    private IdAllocator mItemIdAllocator = new IdAllocator();
+    private IdAllocator mGroupIdAllocator = new IdAllocator();
+
+    /**
+     * Items added through {@link ItemsBuilder} that have not been created
+     * yet - see {@link #setStoresItemsCompactly(boolean)}. 'null' until
+     * compact storage is first turned on. Items are moved to
+     * {@link #mItemsById} as they are created.
+     */
+    private CompactItemStore mCompactItems;
+    private boolean mStoresItemsCompactly;
+
+    private final AdapterPositionIndex.ItemFactory mCompactItemFactory
+            = new AdapterPositionIndex.ItemFactory() {
+        @Override
+        public SublimeBaseMenuItem createItem(int row) {
+            SublimeBaseMenuItem item = SublimeMenu.this.createItem(mCompactItems, row);
+            mCompactItems.remove(row);
+
+            if (!mItemsById.containsKey(item.getItemId())) {
+                mItemsById.put(item.getItemId(), item);
+            }
+
+            return item;
+        }
+    };
+
     /**
      * Contains only the items that are currently visible.  This will be created/refreshed from
      * {@link #getVisibleItems()}
      */
     private ArrayList<SublimeBaseMenuItem> mVisibleItems = new ArrayList<>();
 
+    /**
+     * Number of items in {@link #mItems} that are visible. Group visibility
+     * is not taken into account. Per-group counts are kept by the groups.
+     */
+    private int mVisibleItemCount;
+
     // We only require _one_ presenter
     private SublimeMenuPresenter mPresenter;
 
     private boolean mBlockUpdates;
 
-    private ArrayList<SublimeBaseMenuItem> mAdapterData = new ArrayList<>();
+    // Number of open transactions - see beginTransaction()
+    private int mTransactionDepth;
+
+    /**
+     * Set when {@link #mAdapterData} or the presenter missed a change
+     * (updates were blocked, no presenter was set etc.), or the adapter
+     * data hasn't been built yet. The next
+     * change then invalidates the entire menu instead.
+     */
+    private boolean mAdapterDataStale = true;
+
+    // Changes collected while updating 'mAdapterData'
+    private final ArrayList<Change> mPendingChanges = new ArrayList<>();
+
+    // See setDeliversChangesPerFrame(boolean)
+    private boolean mDeliversChangesPerFrame, mFrameDeliveryScheduled;
+    private Handler mMainHandler;
 
     /**
      * Called by menu to notify of close and selection changes.
@@ -143,33 +226,47 @@ public class SublimeMenu implements Parcelable {
                 isCollapsible, collapsed, enabled,
                 visible, checkableBehavior);
         mGroups.add(group);
+
+        if (!mGroupsById.containsKey(groupId)) {
+            mGroupsById.put(groupId, group);
+        }
+
+        mGroupIdAllocator.markUsed(groupId);
+
         return group;
     }
 
     private int generateUniqueGroupID() {
-        int groupId = 1;
+        int groupId;
 
-        if (mGroups.size() > 0) {
-            while (getGroup(groupId) != null) {
-                groupId++;
-            }
-        }
+        // The allocator does not know about large IDs (Eg: those
+        // assigned in XML), so confirm that the ID is free.
+        do {
+            groupId = mGroupIdAllocator.allocate();
+        } while (mGroupsById.containsKey(groupId));
 
         return groupId;
     }
 
     private int generateUniqueItemID() {
-        int menuItemId = 1;
+        int menuItemId;
 
-        if (mItems.size() > 0) {
-            while (getMenuItem(menuItemId) != null) {
-                menuItemId++;
-            }
-        }
+        do {
+            menuItemId = mItemIdAllocator.allocate();
+        } while (containsItem(menuItemId));
 
         return menuItemId;
     }
 
+    /**
+     * Indicates whether an item with ID 'itemId' has been added,
+     * whether it has been created or not.
+     */
+    private boolean containsItem(int itemId) {
+        return mItemsById.containsKey(itemId)
+                || (mCompactItems != null && mCompactItems.findRow(itemId) != -1);
+    }
+
     /**
      * Adds an item to the menu.  The other add methods funnel to this.
      */
@@ -179,6 +276,12 @@ public class SublimeMenu implements Parcelable {
                                             boolean valueProvidedAsync,
                                             CharSequence badgeText,
                                             boolean showsIconSpace, boolean addedByUser) {
+        if (id == NO_ITEM_ID) {
+            // Items inflated without 'android:id'. Rows are matched by
+            // item ID (stable IDs, diffing), so each item needs its own.
+            id = generateUniqueItemID();
+        }
+
         SublimeBaseMenuItem item;
         boolean isGroupHeader = false;
 
@@ -220,24 +323,24 @@ public class SublimeMenu implements Parcelable {
             int index = findGroupIndex(group);
 
             if (index >= 0) {
-                mItems.add(index, item);
+                insertItem(index, item);
             } else {
-                mItems.add(item);
+                appendItem(item);
             }
         } else if (addedByUser) {
             if (group != NO_GROUP_ID) {
                 int lastGroupIndex = findLastGroupIndex(group);
 
-                mItems.add(lastGroupIndex == mItems.size() ?
+                insertItem(lastGroupIndex == mItems.size() ?
                         lastGroupIndex : lastGroupIndex + 1, item);
             } else {
-                mItems.add(item);
+                appendItem(item);
             }
         } else {
-            mItems.add(item);
+            appendItem(item);
         }
 
-        onItemsChanged();
+        onItemAdded(item);
 
         return item;
     }
@@ -271,7 +374,7 @@ public class SublimeMenu implements Parcelable {
             int index = findGroupIndex(newItemGroupId);
 
             if (index >= 0) { // we found a valid index for the group
-                mItems.add(index, newItem);
+                insertItem(index, newItem);
             } else { // group exists, but does not contain any items at the moment
                 // try to use the `pivot` to place the first group item
                 if (positioned == Positioned.BEFORE) {
@@ -281,11 +384,11 @@ public class SublimeMenu implements Parcelable {
                         // `pivot` is not part of a Group
                         // - or -
                         // `pivot` is a GROUP_HEADER
-                        mItems.add(pivotIndex, newItem);
+                        insertItem(pivotIndex, newItem);
                     } else {
                         // we could not position the item as per the
                         // requirements - add the item at the very end
-                        mItems.add(newItem);
+                        appendItem(newItem);
                     }
                 } else if (positioned == Positioned.AFTER) {
                     if (pivot.getGroupId() == NO_GROUP_ID
@@ -294,11 +397,11 @@ public class SublimeMenu implements Parcelable {
                         // `pivot` is not part of a Group
                         // - or -
                         // `pivot` is the very last item in a Group
-                        mItems.add(pivotIndex + 1, newItem);
+                        insertItem(pivotIndex + 1, newItem);
                     } else {
                         // we could not position the item as per the
                         // requirements - add the item at the very end
-                        mItems.add(newItem);
+                        appendItem(newItem);
                     }
                 }
             }
@@ -314,12 +417,12 @@ public class SublimeMenu implements Parcelable {
                             // `pivot` is not part of a Group
                             // - or -
                             // `pivot` is the very first item in a Group
-                            mItems.add(pivotIndex, newItem);
+                            insertItem(pivotIndex, newItem);
                         } else {
                             // we could not position the item as per the
                             // requirements - add the item at the very end
                             //mItems.add(lastGroupIndex + 1, item);
-                            mItems.add(newItem);
+                            appendItem(newItem);
                         }
                     } else if (positioned == Positioned.AFTER) {
                         if (pivot.getGroupId() == NO_GROUP_ID
@@ -327,12 +430,12 @@ public class SublimeMenu implements Parcelable {
                             // `pivot` is not part of a Group
                             // - or -
                             // `pivot` is the very last item in a Group
-                            mItems.add(pivotIndex + 1, newItem);
+                            insertItem(pivotIndex + 1, newItem);
                         } else {
                             // we could not position the item as per the
                             // requirements - add the item at the very end
                             //mItems.add(lastGroupIndex + 1, item);
-                            mItems.add(newItem);
+                            appendItem(newItem);
                         }
                     }
                 } else {
@@ -341,21 +444,21 @@ public class SublimeMenu implements Parcelable {
                             if (pivot.getItemType()
                                     != SublimeBaseMenuItem.ItemType.GROUP_HEADER) {
                                 // `pivot` is not GroupHeader - add before
-                                mItems.add(pivotIndex, newItem);
+                                insertItem(pivotIndex, newItem);
                             } else {
                                 // cannot add an item before the GroupHeader.
                                 // add item at the end of the Group
-                                mItems.add(lastGroupIndex + 1, newItem);
+                                insertItem(lastGroupIndex + 1, newItem);
                             }
                         } else if (positioned == Positioned.AFTER) {
                             // all positions after the `pivot` are valid
-                            mItems.add(pivotIndex + 1, newItem);
+                            insertItem(pivotIndex + 1, newItem);
                         }
                     } else {
                         // `newItem` & `pivot` belong to different Groups.
                         // The only valid position for `newItem` in this case
                         // is at the end of `newItem's` Group.
-                        mItems.add(lastGroupIndex + 1, newItem);
+                        insertItem(lastGroupIndex + 1, newItem);
                     }
                 }
             } else {
@@ -366,11 +469,11 @@ public class SublimeMenu implements Parcelable {
                         // `pivot` is not part of a Group
                         // - or -
                         // `pivot` is the very first item in a Group
-                        mItems.add(pivotIndex, newItem);
+                        insertItem(pivotIndex, newItem);
                     } else {
                         // we could not position the item as per the
                         // requirements - add the item at the very end
-                        mItems.add(newItem);
+                        appendItem(newItem);
                     }
                 } else if (positioned == Positioned.AFTER) {
                     if (pivot.getGroupId() == NO_GROUP_ID
@@ -378,21 +481,32 @@ public class SublimeMenu implements Parcelable {
                         // `pivot` is not part of a Group
                         // - or -
                         // `pivot` is the very last item in a Group
-                        mItems.add(pivotIndex + 1, newItem);
+                        insertItem(pivotIndex + 1, newItem);
                     } else {
                         // we could not position the item as per the
                         // requirements - add the item at the very end
-                        mItems.add(newItem);
+                        appendItem(newItem);
                     }
                 }
             }
         }
 
-        onItemsChanged();
+        onItemAdded(newItem);
 
         return newItem;
     }
 
+    /**
+     * Creates the item held by 'row' of 'rows'. The item is
+     * not added to this menu.
+     */
+    private SublimeBaseMenuItem createItem(CompactItemStore rows, int row) {
+        return createInternal(rows.getGroupId(row), rows.getId(row),
+                rows.getTitle(row), rows.getHint(row), rows.getItemType(row),
+                false /*valueProvidedAsync*/, rows.getBadgeText(row),
+                rows.showsIconSpace(row));
+    }
+
     /**
      * Creates an item.  The other 'create' methods funnel to this.
      */
@@ -444,7 +558,7 @@ public class SublimeMenu implements Parcelable {
      * @param itemId ID of the item to check for
      */
     private void checkExistenceOfItem(int itemId) {
-        if (itemId == NO_ITEM_ID || getMenuItem(itemId) == null) {
+        if (itemId == NO_ITEM_ID || !containsItem(itemId)) {
             throw new RuntimeException("'itemId' passed was invalid: '" + itemId + "'.");
         }
     }
@@ -475,12 +589,11 @@ public class SublimeMenu implements Parcelable {
      * @param groupId ID of the group on which to perform this check.
      */
     private void checkIfGroupHeaderAlreadyExistsForGroup(int groupId) {
-        for (SublimeBaseMenuItem item : mItems) {
-            if (item.getGroupId() == groupId
-                    && item.getItemType() == SublimeBaseMenuItem.ItemType.GROUP_HEADER) {
-                throw new RuntimeException("Attempt to add 'GroupHeader' to " +
-                        "a 'Group' that already contains one.");
-            }
+        SublimeGroup group = getGroup(groupId);
+
+        if (group != null && group.getHeaderItem() != null) {
+            throw new RuntimeException("Attempt to add 'GroupHeader' to " +
+                    "a 'Group' that already contains one.");
         }
     }
 
@@ -640,20 +753,236 @@ public class SublimeMenu implements Parcelable {
         addInternal(pivotId, Positioned.AFTER, item);
     }
 
+    /**
+     * Used with {@link #removeItemsIf(ItemFilter)} to pick items.
+     */
+    public interface ItemFilter {
+        boolean matches(SublimeBaseMenuItem item);
+    }
+
+    /**
+     * Sets whether items added through {@link ItemsBuilder} are stored
+     * compactly. Off by default. Meant for very large menus (a folder
+     * tree with thousands of entries, for instance).
+     *
+     * When on, builders created afterwards keep the ID, group, type &amp;
+     * text of each item in a few shared arrays instead of creating an
+     * item object. The object is created the first time the item is
+     * needed: when it is presented, returned from {@link #getMenuItem(int)}
+     * or passed to a listener, or when a group creates its members
+     * (enabling a group, for instance). Items of collapsed or hidden
+     * groups therefore cost a fraction of what item objects do.
+     *
+     * {@link #getVisibleItems()}, {@link #removeItemsIf(ItemFilter)} &amp;
+     * {@link ItemsBuilder#getItems()} create the items they visit. A menu
+     * restored from a {@link Parcel} holds item objects.
+     *
+     * @param compact 'true' to store items added by builders compactly
+     * @return this {@link SublimeMenu} for chaining
+     */
+    public SublimeMenu setStoresItemsCompactly(boolean compact) {
+        if (compact && mCompactItems == null) {
+            mCompactItems = new CompactItemStore();
+            mAdapterData.setCompactItems(mCompactItems, mCompactItemFactory);
+        }
+
+        mStoresItemsCompactly = compact;
+        return this;
+    }
+
+    /**
+     * Indicates whether items added through {@link ItemsBuilder}
+     * are stored compactly.
+     *
+     * @return 'true' if items are stored compactly
+     * @see #setStoresItemsCompactly(boolean)
+     */
+    public boolean storesItemsCompactly() {
+        return mStoresItemsCompactly;
+    }
+
+    /**
+     * Returns the number of items that have been added but not created
+     * yet. See {@link #setStoresItemsCompactly(boolean)}.
+     */
+    int getCompactItemCount() {
+        return mCompactItems == null ? 0 : mCompactItems.size();
+    }
+
+    /**
+     * Returns a builder for adding several items to a group at once.
+     * See {@link ItemsBuilder}.
+     *
+     * @param groupId ID of the group to add items to, or {@link #NO_GROUP_ID}
+     * @return a new {@link ItemsBuilder}
+     */
+    public ItemsBuilder newItemsBuilder(int groupId) {
+        checkExistenceOfGroup(groupId);
+        return new ItemsBuilder(this, groupId);
+    }
+
+    /**
+     * Adds 'items' at the end of the group they belong to (or at the end of
+     * the menu if they don't belong to a group). The menu is updated once
+     * for all items, and a single range insertion is reported. Items must
+     * be created using the 'create' methods of this menu, must share
+     * their group &amp; must not be group headers.
+     *
+     * @param groupId ID of the group the items belong to, or {@link #NO_GROUP_ID}
+     * @param items   items to add
+     */
+    public void addItems(int groupId, List<SublimeBaseMenuItem> items) {
+        checkExistenceOfGroup(groupId);
+
+        for (int i = 0, size = items.size(); i < size; i++) {
+            SublimeBaseMenuItem item = items.get(i);
+
+            if (item.getMenu() != this || item.getPositionInMenu() != -1
+                    || item.getGroupId() != groupId) {
+                throw new RuntimeException("Items added using 'addItems(...)' should be " +
+                        "created by this menu for group '" + groupId + "', and " +
+                        "should not have been added already.");
+            }
+
+            if (item.getItemType() == SublimeBaseMenuItem.ItemType.GROUP_HEADER) {
+                throw new RuntimeException("'GroupHeader' cannot be added " +
+                        "using 'addItems(...)'.");
+            }
+        }
+
+        if (items.isEmpty()) return;
+
+        int index = getIndexAfterGroup(groupId);
+
+        insertItems(index, items);
+        onItemsAdded(index, items.size());
+    }
+
+    /**
+     * Adds the items held by 'rows' at the end of the group. Same as
+     * {@link #addItems(int, List)}, but the items are only created
+     * when they are needed. 'rows' must hold items for 'groupId'
+     * that are not group headers, &amp; nothing may have been
+     * removed from it.
+     *
+     * @param groupId ID of the group the items belong to, or {@link #NO_GROUP_ID}
+     * @param rows    items to add
+     */
+    private void addCompactItems(int groupId, CompactItemStore rows) {
+        checkExistenceOfGroup(groupId);
+
+        final int count = rows.size();
+
+        if (count == 0) return;
+
+        if (containsItem(rows.getId(0))) {
+            throw new RuntimeException("Items of an 'ItemsBuilder' can " +
+                    "only be added once.");
+        }
+
+        final int index = getIndexAfterGroup(groupId);
+        final SublimeGroup group = getGroup(groupId);
+
+        mCompactItems.ensureCapacity(mCompactItems.size() + count);
+
+        int[] menuRows = new int[count];
+        int[] hideCounts = new int[count];
+
+        for (int row = 0; row < count; row++) {
+            menuRows[row] = mCompactItems.add(rows.getId(row), groupId,
+                    rows.getItemType(row), rows.getTitle(row), rows.getHint(row),
+                    rows.getBadgeText(row), rows.showsIconSpace(row));
+            hideCounts[row] = getHideCount(rows.getItemType(row), group);
+            mItemIdAllocator.markUsed(rows.getId(row));
+        }
+
+        mAdapterData.insertRows(index, menuRows, hideCounts);
+        mVisibleItemCount += count;
+
+        if (group != null) {
+            // The group refers to its first & last members - create them
+            int created = 0;
+
+            if (group.getItemCount() == 0) {
+                group.onMemberAdded(mItems.get(index));
+                created++;
+            }
+
+            if (count > created) {
+                group.onMemberAdded(mItems.get(index + count - 1));
+                created++;
+            }
+
+            group.onCompactMembersAdded(count - created);
+        }
+
+        onItemsAdded(index, count);
+    }
+
+    /**
+     * Returns the position right after the last member of the group, or
+     * the end of the menu if the group has no members.
+     *
+     * @param groupId ID of the group, or {@link #NO_GROUP_ID}
+     */
+    private int getIndexAfterGroup(int groupId) {
+        int index = mItems.size();
+
+        if (groupId != NO_GROUP_ID) {
+            int lastGroupIndex = findLastGroupIndex(groupId);
+
+            if (lastGroupIndex != mItems.size()) {
+                index = lastGroupIndex + 1;
+            }
+        }
+
+        return index;
+    }
+
     public void removeItem(int id) {
         removeItemAtInt(findItemIndex(id), true);
     }
 
+    /**
+     * Removes all items from the item with ID 'firstId' through the
+     * item with ID 'lastId' (both inclusive), in menu order.
+     *
+     * @param firstId ID of the first item to remove
+     * @param lastId  ID of the last item to remove
+     */
+    public void removeItemRange(int firstId, int lastId) {
+        checkExistenceOfItem(firstId);
+        checkExistenceOfItem(lastId);
+
+        int from = findItemIndex(firstId);
+        int to = findItemIndex(lastId);
+
+        if (from > to) {
+            throw new RuntimeException("Item with ID '" + firstId + "' does not " +
+                    "appear before item with ID '" + lastId + "'.");
+        }
+
+        removeItems(from, to + 1, null);
+    }
+
+    /**
+     * Removes all items that 'filter' matches. The menu is compacted
+     * in a single pass, &amp; removals are reported as contiguous ranges.
+     * 'filter' should not modify this menu.
+     *
+     * @param filter decides which items to remove
+     * @return number of items removed
+     */
+    public int removeItemsIf(ItemFilter filter) {
+        return removeItems(0, mItems.size(), filter);
+    }
+
     public void removeGroup(int groupId) {
         final int i = findGroupIndex(groupId);
 
         if (i >= 0) {
-            final int maxRemovable = mItems.size() - i;
-            int numRemoved = 0;
-            while ((numRemoved++ < maxRemovable) && (mItems.get(i).getGroupId() == groupId)) {
-                // Don't force update for each one, this method will do it at the end
-                removeItemAtInt(i, false);
-            }
+            // Members are next to each other
+            removeItems(i, findLastGroupIndex(groupId) + 1, null);
 
             // Remove Group
             int groups = mGroups.size();
@@ -667,8 +996,8 @@ public class SublimeMenu implements Parcelable {
                 }
             }
 
-            // Notify menu views
-            onItemsChanged();
+            mGroupsById.remove(groupId);
+            mGroupIdAllocator.release(groupId);
         }
     }
 
@@ -685,179 +1014,443 @@ public class SublimeMenu implements Parcelable {
     private void removeItemAtInt(int index, boolean updateChildrenOnMenuViews) {
         if ((index < 0) || (index >= mItems.size())) return;
 
-        mItems.remove(index);
+        int adapterPos = getAdapterPosForItem(mItems.get(index));
+
+        removeItemAt(index);
 
-        if (updateChildrenOnMenuViews) {
-            onItemsChanged();
+        if (updateChildrenOnMenuViews && adapterPos != -1) {
+            mPendingChanges.add(
+                    new Change(Change.ChangeType.ITEM_REMOVED, adapterPos, -1, -1, -1));
+            dispatchPendingChanges();
         }
     }
 
     public void clear() {
-        mItems.clear();
+        // Everything that is shown goes away in one range
+        addRangeChange(mAdapterData.getAdapterPosition(0),
+                -mAdapterData.countShown(0, mItems.size()));
+
+        for (SublimeGroup group : mGroups) {
+            group.resetMembers();
+        }
+
+        mItemsById.clear();
+
+        if (mCompactItems != null) {
+            mCompactItems.clear();
+        }
+
+        mVisibleItemCount = 0;
+        mAdapterData.reset();
         mGroups.clear();
-        onItemsChanged();
+        mGroupsById.clear();
+        mItemIdAllocator.reset();
+        mGroupIdAllocator.reset();
+        dispatchPendingChanges();
     }
 
     /**
-     * Performs required changes to other group items
-     * before the passed item's checked state is set to true.
+     * Removes the items in [from, to) that 'filter' matches (all of
+     * them if 'filter' is null). Items that remain are shifted
+     * once, and each run of removed items that were
+     * shown is reported as a single change.
      *
-     * @param item Item on which setChecked(true) has been called
+     * @param from   first position to consider (inclusive)
+     * @param to     last position to consider (exclusive)
+     * @param filter decides which items to remove, or 'null'
+     * @return number of items removed
      */
-    void setItemChecked(SublimeBaseMenuItem item) {
-        SublimeGroup group = getGroup(item.getGroupId());
-
-        if (group == null) return;
-
-        if (group.getCheckableBehavior() == SublimeGroup.CheckableBehavior.SINGLE) {
-            final int N = mItems.size();
-            for (int i = 0; i < N; i++) {
-                SublimeBaseMenuItem curItem = mItems.get(i);
-                if (curItem.getGroupId() == group.getGroupId()) {
-                    if (!curItem.isCheckable()) {
-                        continue;
-                    }
+    private int removeItems(int from, int to, ItemFilter filter) {
+        BitSet removed = new BitSet(to);
 
-                    // Check the item meant to be checked,
-                    // un-check the others (that are in the group)
-                    if (curItem != item) {
-                        curItem.setCheckedInt(false);
-                    }
-                }
+        for (int i = from; i < to; i++) {
+            if (filter == null || filter.matches(mItems.get(i))) {
+                removed.set(i);
             }
         }
-    }
 
-    protected List<SublimeBaseMenuItem> getItemsForGroup(int groupId) {
-        ArrayList<SublimeBaseMenuItem> groupItems = new ArrayList<>();
+        if (removed.isEmpty()) return 0;
 
-        final int N = mItems.size();
+        // Report while adapter positions are still known. Each run is
+        // reported at the position it occupies after the runs before
+        // it are gone.
+        int removedShown = 0;
 
-        for (int i = 0; i < N; i++) {
-            SublimeBaseMenuItem item = mItems.get(i);
-            if (item.getGroupId() == groupId) {
-                groupItems.add(item);
-            }
+        for (int start = removed.nextSetBit(from); start != -1;
+             start = removed.nextSetBit(removed.nextClearBit(start))) {
+            int end = removed.nextClearBit(start);
+            int shown = mAdapterData.countShown(start, end);
+
+            addRangeChange(mAdapterData.getAdapterPosition(start) - removedShown, -shown);
+            removedShown += shown;
         }
 
-        return groupItems;
-    }
+        // Neighbours passed to groups are the closest remaining items,
+        // same as when removing items one at a time.
+        final int size = mItems.size();
+        int previous = from - 1;
+        SublimeGroup currentGroup = null;
 
-    protected int getVisibleItemCountForGroup(List<SublimeBaseMenuItem> groupItems) {
-        int visibleItems = 0;
-        for (SublimeBaseMenuItem menuItem : groupItems) {
-            if (menuItem.isVisible()) {
-                visibleItems++;
+        // Rows of removed items that were not created, freed once
+        // the items are out of 'mAdapterData'
+        int[] removedRows = null;
+        int removedRowCount = 0;
+
+        for (int i = from; i < to; i++) {
+            if (!removed.get(i)) {
+                previous = i;
+                continue;
             }
-        }
 
-        return visibleItems;
-    }
+            // Items that have not been created are not created here
+            SublimeBaseMenuItem item = mAdapterData.peek(i);
 
-    public boolean hasVisibleItems() {
-        final int size = size();
+            if (item == null) {
+                int row = mAdapterData.getRow(i);
+                int groupId = mCompactItems.getGroupId(row);
 
-        for (int i = 0; i < size; i++) {
-            SublimeBaseMenuItem item = mItems.get(i);
-            if (item.isVisible()) {
-                return true;
+                if (removedRows == null) {
+                    removedRows = new int[removed.cardinality()];
+                }
+
+                removedRows[removedRowCount++] = row;
+                mItemIdAllocator.release(mCompactItems.getId(row));
+                mVisibleItemCount--;
+
+                if (currentGroup == null || currentGroup.getGroupId() != groupId) {
+                    currentGroup = getGroup(groupId);
+                }
+
+                if (currentGroup != null) {
+                    currentGroup.onCompactMemberRemoved();
+                }
+
+                continue;
             }
-        }
 
-        return false;
-    }
+            if (mItemsById.get(item.getItemId()) == item) {
+                mItemsById.remove(item.getItemId());
+                mItemIdAllocator.release(item.getItemId());
+            }
 
-    public boolean groupHasVisibleItems(int groupId) {
-        final int size = size();
+            if (item.isVisible()) {
+                mVisibleItemCount--;
+            }
 
-        for (int i = 0; i < size; i++) {
-            SublimeBaseMenuItem item = mItems.get(i);
-            if (item.getGroupId() == groupId && item.isVisible()) {
-                return true;
+            if (currentGroup == null || currentGroup.getGroupId() != item.getGroupId()) {
+                currentGroup = getGroup(item.getGroupId());
+            }
+
+            if (currentGroup != null) {
+                int next = removed.nextClearBit(i);
+                currentGroup.onMemberRemoved(item,
+                        previous >= 0 ? mItems.get(previous) : null,
+                        next < size ? mItems.get(next) : null);
             }
         }
 
-        return false;
-    }
+        // Compacts the remaining items
+        mAdapterData.removePositions(removed);
 
-    public SublimeBaseMenuItem getMenuItem(int itemId) {
-        final int size = size();
-        for (int i = 0; i < size; i++) {
-            SublimeBaseMenuItem item = mItems.get(i);
-            if (item.getItemId() == itemId) {
-                return item;
-            }
+        for (int i = 0; i < removedRowCount; i++) {
+            mCompactItems.remove(removedRows[i]);
         }
 
-        return null;
+        dispatchPendingChanges();
+        return removed.cardinality();
     }
 
-    private int findItemIndex(int itemId) {
-        final int size = size();
+    /**
+     * Inserts the item at the given index, updating the ID index,
+     * the stored positions of all items that follow &amp; the range
+     * of the item's group.
+     *
+     * @param index position at which to insert the item
+     * @param item  item to insert
+     */
+    private void insertItem(int index, SublimeBaseMenuItem item) {
+        SublimeGroup group = getGroup(item.getGroupId());
 
-        for (int i = 0; i < size; i++) {
-            SublimeBaseMenuItem item = mItems.get(i);
-            if (item.getItemId() == itemId) {
-                return i;
+        mAdapterData.insert(index, item, getHideCount(item.getItemType(), group));
+        registerItem(item, group);
+    }
+
+    /**
+     * Inserts 'items' at the given index. Same as calling
+     * {@link #insertItem(int, SublimeBaseMenuItem)} for each item, but
+     * items that follow are shifted only once.
+     *
+     * @param index position at which to insert the first item
+     * @param items items to insert
+     */
+    private void insertItems(int index, List<SublimeBaseMenuItem> items) {
+        final int count = items.size();
+
+        mItemsById.ensureCapacity(mItemsById.size() + count);
+
+        int[] hideCounts = new int[count];
+        SublimeGroup currentGroup = null;
+
+        for (int i = 0; i < count; i++) {
+            SublimeBaseMenuItem item = items.get(i);
+
+            if (currentGroup == null || currentGroup.getGroupId() != item.getGroupId()) {
+                currentGroup = getGroup(item.getGroupId());
             }
+
+            hideCounts[i] = getHideCount(item.getItemType(), currentGroup);
         }
 
-        return -1;
-    }
+        mAdapterData.insert(index, items, hideCounts);
 
-    private int findGroupIndex(int groupId) {
-        final int size = size();
+        for (int i = 0; i < count; i++) {
+            SublimeBaseMenuItem item = items.get(i);
 
-        for (int i = 0; i < size; i++) {
-            final SublimeBaseMenuItem item = mItems.get(i);
-            if (item.getGroupId() == groupId) {
-                return i;
+            if (currentGroup == null || currentGroup.getGroupId() != item.getGroupId()) {
+                currentGroup = getGroup(item.getGroupId());
             }
-        }
 
-        return -1;
+            registerItem(item, currentGroup);
+        }
     }
 
     /**
-     * Returns the last index at which a member of the indicated group
-     * exists. If the group currently does not have any members,
-     * size of the MenuItem-list is returned.
-     *
-     * @param groupId ID of the group whose last member's index needs to be
-     *                found
-     * @return index of the last member of the indicated group, or size of
-     * the MenuItem-list if no members are found.
+     * Updates the ID index, visible item count &amp; the item's group
+     * after 'item' has been placed in {@link #mAdapterData}.
      */
-    private int findLastGroupIndex(int groupId) {
-        int i = 0, size = mItems.size();
-        boolean traversingGroup = false;
-        while (true) {
-            if (i < size) {
-                final SublimeBaseMenuItem item = mItems.get(i);
-
-                if (item.getGroupId() == groupId) {
-                    traversingGroup = true;
-                } else if (traversingGroup) {
-                    // Take one step back
-                    return i - 1;
-                }
+    private void registerItem(SublimeBaseMenuItem item, SublimeGroup group) {
+        if (!mItemsById.containsKey(item.getItemId())) {
+            mItemsById.put(item.getItemId(), item);
+        }
 
-                i++;
-            } else {
-                return traversingGroup ? size - 1 : size;
-            }
+        mItemIdAllocator.markUsed(item.getItemId());
+
+        if (item.isVisible()) {
+            mVisibleItemCount++;
         }
-    }
 
-    public int size() {
-        return mItems.size();
+        if (group != null) {
+            group.onMemberAdded(item);
+        }
     }
 
-    public Context getContext() {
-        return mContext;
+    private void appendItem(SublimeBaseMenuItem item) {
+        insertItem(mItems.size(), item);
     }
 
-    boolean dispatchMenuItemSelected(SublimeBaseMenuItem item,
+    /**
+     * Removes the item at the given index, updating the ID index,
+     * the stored positions of all items that follow &amp; the range
+     * of the item's group.
+     *
+     * @param index position of the item to remove
+     * @return the removed item
+     */
+    private SublimeBaseMenuItem removeItemAt(int index) {
+        SublimeBaseMenuItem item = mItems.get(index);
+        mAdapterData.remove(index, index + 1);
+
+        if (mItemsById.get(item.getItemId()) == item) {
+            mItemsById.remove(item.getItemId());
+            mItemIdAllocator.release(item.getItemId());
+        }
+
+        if (item.isVisible()) {
+            mVisibleItemCount--;
+        }
+
+        SublimeGroup group = getGroup(item.getGroupId());
+
+        if (group != null) {
+            group.onMemberRemoved(item,
+                    index > 0 ? mItems.get(index - 1) : null,
+                    index < mItems.size() ? mItems.get(index) : null);
+        }
+
+        return item;
+    }
+
+    /**
+     * Returns the menu position of the item that occupies 'slot'.
+     * See {@link SublimeBaseMenuItem#getPositionInMenu()}.
+     */
+    int getPositionForSlot(int slot) {
+        return mAdapterData.getPositionForSlot(slot);
+    }
+
+    /**
+     * Performs required changes to other group items
+     * before the passed item's checked state is set to true.
+     * For SINGLE groups, only the member checked previously
+     * needs to be un-checked - no other member can be checked.
+     *
+     * @param item Item on which setChecked(true) has been called
+     */
+    void setItemChecked(SublimeBaseMenuItem item) {
+        SublimeGroup group = getGroup(item.getGroupId());
+
+        if (group == null) return;
+
+        if (group.getCheckableBehavior() == SublimeGroup.CheckableBehavior.SINGLE) {
+            SublimeBaseMenuItem checkedItem = group.getCheckedItem();
+
+            if (checkedItem != null && checkedItem != item
+                    && checkedItem.isCheckable()) {
+                checkedItem.setCheckedInt(false);
+            }
+        }
+    }
+
+    /**
+     * Keeps the checked member of the item's group up-to-date.
+     * Called whenever an item's checked state changes.
+     *
+     * @param item Item whose checked state has changed
+     */
+    void onItemCheckedStateChanged(SublimeBaseMenuItem item) {
+        if (item.getPositionInMenu() == -1) {
+            // Not part of this menu (yet) - will be
+            // picked up when the item is added.
+            return;
+        }
+
+        SublimeGroup group = getGroup(item.getGroupId());
+
+        if (group != null) {
+            group.onMemberCheckedStateChanged(item);
+        }
+    }
+
+    /**
+     * Returns the members of the given group in menu order. Items that
+     * aren't part of a group are returned for 'NO_GROUP_ID'.
+     *
+     * @param groupId ID of the group whose members are required
+     * @return a new list holding the members of the group
+     */
+    protected List<SublimeBaseMenuItem> getItemsForGroup(int groupId) {
+        SublimeGroup group = groupId == NO_GROUP_ID ? null : getGroup(groupId);
+
+        if (group != null) {
+            if (group.getItemCount() == 0) {
+                return new ArrayList<>();
+            }
+
+            // members of a group are contiguous
+            return new ArrayList<>(mItems.subList(group.getFirstItem().getPositionInMenu(),
+                    group.getLastItem().getPositionInMenu() + 1));
+        }
+
+        ArrayList<SublimeBaseMenuItem> groupItems = new ArrayList<>();
+
+        for (SublimeBaseMenuItem item : mItems) {
+            if (item.getGroupId() == groupId) {
+                groupItems.add(item);
+            }
+        }
+
+        return groupItems;
+    }
+
+    protected int getVisibleItemCountForGroup(List<SublimeBaseMenuItem> groupItems) {
+        int visibleItems = 0;
+        for (SublimeBaseMenuItem menuItem : groupItems) {
+            if (menuItem.isVisible()) {
+                visibleItems++;
+            }
+        }
+
+        return visibleItems;
+    }
+
+    /**
+     * Returns the number of visible members in the given group.
+     * The count is maintained as items are added, removed,
+     * shown or hidden.
+     *
+     * @param groupId ID of the group
+     * @return visible member count, or 0 if the group doesn't exist
+     */
+    protected int getVisibleItemCountForGroup(int groupId) {
+        SublimeGroup group = getGroup(groupId);
+        return group == null ? 0 : group.getVisibleItemCount();
+    }
+
+    public boolean hasVisibleItems() {
+        return mVisibleItemCount > 0;
+    }
+
+    public boolean groupHasVisibleItems(int groupId) {
+        return getVisibleItemCountForGroup(groupId) > 0;
+    }
+
+    public SublimeBaseMenuItem getMenuItem(int itemId) {
+        SublimeBaseMenuItem item = mItemsById.get(itemId);
+
+        if (item == null) {
+            int index = findCompactItemIndex(itemId);
+
+            if (index != -1) {
+                item = mItems.get(index);
+            }
+        }
+
+        return item;
+    }
+
+    private int findItemIndex(int itemId) {
+        SublimeBaseMenuItem item = mItemsById.get(itemId);
+        return item != null ? item.getPositionInMenu() : findCompactItemIndex(itemId);
+    }
+
+    /**
+     * Returns the position of the item with ID 'itemId' if it has
+     * not been created, or -1.
+     */
+    private int findCompactItemIndex(int itemId) {
+        int row = mCompactItems != null ? mCompactItems.findRow(itemId) : -1;
+        return row != -1 ? getPositionForSlot(mCompactItems.getSlot(row)) : -1;
+    }
+
+    private int findGroupIndex(int groupId) {
+        SublimeGroup group = getGroup(groupId);
+
+        if (group == null || group.getItemCount() == 0) {
+            return -1;
+        }
+
+        return group.getFirstItem().getPositionInMenu();
+    }
+
+    /**
+     * Returns the last index at which a member of the indicated group
+     * exists. If the group currently does not have any members,
+     * size of the MenuItem-list is returned.
+     *
+     * @param groupId ID of the group whose last member's index needs to be
+     *                found
+     * @return index of the last member of the indicated group, or size of
+     * the MenuItem-list if no members are found.
+     */
+    private int findLastGroupIndex(int groupId) {
+        SublimeGroup group = getGroup(groupId);
+
+        if (group == null || group.getItemCount() == 0) {
+            return mItems.size();
+        }
+
+        return group.getLastItem().getPositionInMenu();
+    }
+
+    public int size() {
+        return mItems.size();
+    }
+
+    public Context getContext() {
+        return mContext;
+    }
+
+    boolean dispatchMenuItemSelected(SublimeBaseMenuItem item,
                                      OnNavigationMenuEventListener.Event event) {
         return mCallback != null && mCallback.onMenuItemSelected(this, item, event);
     }
@@ -884,6 +1477,117 @@ public class SublimeMenu implements Parcelable {
     //---------------------------Item changes-------------------------//
     //----------------------------------------------------------------//
 
+    /**
+     * Starts a transaction. Changes made to this menu, its items &amp;
+     * groups are recorded until the matching {@link #commit()} and
+     * then delivered to the presenter together - adjacent changes
+     * are merged into ranges, so the list still animates.
+     * Transactions can be nested.
+     *
+     * @return this {@link SublimeMenu} for chaining
+     */
+    public SublimeMenu beginTransaction() {
+        mTransactionDepth++;
+        return this;
+    }
+
+    /**
+     * Ends the transaction started by {@link #beginTransaction()}. Recorded
+     * changes are delivered when the outermost transaction is committed.
+     * Throws {@link RuntimeException} if no transaction is open.
+     */
+    public void commit() {
+        if (mTransactionDepth == 0) {
+            throw new RuntimeException("'commit()' called without a " +
+                    "matching call to 'beginTransaction()'.");
+        }
+
+        if (--mTransactionDepth == 0) {
+            dispatchPendingChanges();
+        }
+    }
+
+    /**
+     * Sets how changes are delivered to the presenter. By default, each
+     * change is delivered as soon as it is made. When delivering per
+     * frame, changes are recorded &amp; delivered together right before
+     * the next frame is drawn - as if every frame were wrapped in a
+     * transaction. Updating many items in one go (badges after a sync,
+     * for instance) then costs a single layout pass.
+     *
+     * @param perFrame 'true' to deliver changes once per frame,
+     *                 'false' to deliver them immediately
+     * @return this {@link SublimeMenu} for chaining
+     */
+    public SublimeMenu setDeliversChangesPerFrame(boolean perFrame) {
+        mDeliversChangesPerFrame = perFrame;
+
+        if (!perFrame) {
+            // Deliver anything still waiting for a frame
+            dispatchPendingChanges();
+        }
+
+        return this;
+    }
+
+    /**
+     * Indicates whether changes are delivered once per frame.
+     *
+     * @return 'true' if changes are delivered once per frame,
+     * 'false' if they are delivered immediately
+     * @see #setDeliversChangesPerFrame(boolean)
+     */
+    public boolean deliversChangesPerFrame() {
+        return mDeliversChangesPerFrame;
+    }
+
+    /**
+     * Schedules delivery of recorded changes for the next frame.
+     */
+    private void scheduleFrameDelivery() {
+        if (mFrameDeliveryScheduled) return;
+
+        mFrameDeliveryScheduled = true;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    onFrame();
+                }
+            });
+        } else {
+            if (mMainHandler == null) {
+                mMainHandler = new Handler(Looper.getMainLooper());
+            }
+
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onFrame();
+                }
+            });
+        }
+    }
+
+    private void onFrame() {
+        mFrameDeliveryScheduled = false;
+
+        if (mDeliversChangesPerFrame) {
+            deliverPendingChanges();
+        }
+    }
+
+    /**
+     * Indicates whether a transaction is open.
+     *
+     * @return 'true' between {@link #beginTransaction()} &amp;
+     * the matching {@link #commit()}
+     */
+    public boolean inTransaction() {
+        return mTransactionDepth > 0;
+    }
+
     protected SublimeMenu blockUpdates() {
         mBlockUpdates = true;
         return this;
@@ -937,6 +1641,20 @@ public class SublimeMenu implements Parcelable {
         // Used with ChangeType: RANGE_INSERTED, RANGE_REMOVED, RANGE_CHANGED
         private int mNumberOfAffectedItems;
 
+        // Parts of a row that changed, used with ChangeType: ITEM_CHANGED,
+        // RANGE_CHANGED. '0' if unknown - the row is bound afresh.
+        private int mPayload;
+
+        static final int PAYLOAD_TITLE = 1;
+        static final int PAYLOAD_HINT = 1 << 1;
+        static final int PAYLOAD_ICON = 1 << 2;
+        static final int PAYLOAD_CHECKED = 1 << 3;
+        static final int PAYLOAD_ENABLED = 1 << 4;
+        static final int PAYLOAD_BADGE = 1 << 5;
+
+        // The row shows a different, but equal, item
+        static final int PAYLOAD_ITEM = 1 << 6;
+
         private ChangeType mChangeType;
 
         public Change(ChangeType changeType, int affectedPosition, int movedFromPosition,
@@ -967,9 +1685,195 @@ public class SublimeMenu implements Parcelable {
         public int getMovedToPosition() {
             return mMovedToPosition;
         }
+
+        /**
+         * Returns the parts of the affected rows that changed.
+         *
+         * @return PAYLOAD_* flags, or '0' if the rows have to be bound afresh
+         */
+        int getPayload() {
+            return mPayload;
+        }
+
+        Change setPayload(int payload) {
+            mPayload = payload;
+            return this;
+        }
+
+        private static int mergePayloads(int payload, int otherPayload) {
+            return payload == 0 || otherPayload == 0 ? 0 : payload | otherPayload;
+        }
+
+        private int getCount() {
+            return mNumberOfAffectedItems > 0 ? mNumberOfAffectedItems : 1;
+        }
+
+        private static Change create(ChangeType itemType, ChangeType rangeType,
+                                     int position, int count) {
+            return count == 1 ?
+                    new Change(itemType, position, -1, -1, -1)
+                    : new Change(rangeType, position, -1, -1, count);
+        }
+
+        /**
+         * Merges each change in 'changes' with the one before it, where
+         * possible: adjacent insertions, removals &amp; changes become
+         * ranges, changes to freshly inserted items are dropped and
+         * removals of freshly inserted items cancel out. Consecutive
+         * content changes don't shift positions, so they are sorted
+         * first - repeated changes to one item become a single change.
+         * The changes describe the same transition before &amp; after
+         * merging.
+         *
+         * @param changes changes in the order they were made
+         */
+        static void coalesce(List<Change> changes) {
+            int last = -1;
+
+            for (int i = 0, size = changes.size(); i < size; i++) {
+                Change change = changes.get(i);
+
+                if (last >= 0) {
+                    Change merged = merge(changes.get(last), change);
+
+                    if (merged != null) {
+                        if (merged == DROP) {
+                            last--;
+                        } else if (merged != KEEP) {
+                            changes.set(last, merged);
+                        }
+
+                        continue;
+                    }
+                }
+
+                changes.set(++last, change);
+            }
+
+            changes.subList(last + 1, changes.size()).clear();
+            mergeContentChanges(changes);
+        }
+
+        /**
+         * Sorts each run of consecutive content changes by position
+         * &amp; merges the ones that overlap or touch.
+         */
+        private static void mergeContentChanges(List<Change> changes) {
+            int last = -1;
+
+            for (int i = 0, size = changes.size(); i < size; ) {
+                int end = i;
+
+                while (end < size && changes.get(end).isChange()) {
+                    end++;
+                }
+
+                if (end - i > 1) {
+                    List<Change> run = changes.subList(i, end);
+                    Collections.sort(run, BY_POSITION);
+
+                    for (int j = i; j < end; j++) {
+                        Change change = changes.get(j);
+                        Change merged = j > i ? merge(changes.get(last), change) : null;
+
+                        if (merged != null) {
+                            if (merged != KEEP) {
+                                changes.set(last, merged);
+                            }
+                        } else {
+                            changes.set(++last, change);
+                        }
+                    }
+
+                    i = end;
+                } else {
+                    changes.set(++last, changes.get(i));
+                    i++;
+                }
+            }
+
+            changes.subList(last + 1, changes.size()).clear();
+        }
+
+        private static final Comparator<Change> BY_POSITION = new Comparator<Change>() {
+            @Override
+            public int compare(Change lhs, Change rhs) {
+                return lhs.mAffectedPosition < rhs.mAffectedPosition ? -1
+                        : (lhs.mAffectedPosition == rhs.mAffectedPosition ? 0 : 1);
+            }
+        };
+
+        // Results of merge(...) other than a merged change
+        private static final Change KEEP = new Change(null, -1, -1, -1, -1);
+        private static final Change DROP = new Change(null, -1, -1, -1, -1);
+
+        /**
+         * Merges 'next' into 'previous'.
+         *
+         * @return the merged change, {@link #KEEP} if 'next' has no effect,
+         * {@link #DROP} if both changes cancel out, or 'null' if the
+         * changes can't be merged
+         */
+        private static Change merge(Change previous, Change next) {
+            final int from = previous.mAffectedPosition;
+            final int count = previous.getCount();
+            final int nextFrom = next.mAffectedPosition;
+            final int nextCount = next.getCount();
+
+            if (previous.isInsertion()) {
+                if (next.isInsertion() && nextFrom >= from && nextFrom <= from + count) {
+                    return create(ChangeType.ITEM_INSERTED, ChangeType.RANGE_INSERTED,
+                            from, count + nextCount);
+                }
+
+                boolean within = nextFrom >= from && nextFrom + nextCount <= from + count;
+
+                if (next.isChange() && within) {
+                    // Inserted items are bound afresh anyway
+                    return KEEP;
+                }
+
+                if (next.isRemoval() && within) {
+                    return count == nextCount ? DROP
+                            : create(ChangeType.ITEM_INSERTED, ChangeType.RANGE_INSERTED,
+                            from, count - nextCount);
+                }
+            } else if (previous.isRemoval() && next.isRemoval()) {
+                if (nextFrom == from || nextFrom + nextCount == from) {
+                    return create(ChangeType.ITEM_REMOVED, ChangeType.RANGE_REMOVED,
+                            Math.min(from, nextFrom), count + nextCount);
+                }
+            } else if (previous.isChange() && next.isChange()) {
+                if (nextFrom <= from + count && nextFrom + nextCount >= from) {
+                    int mergedFrom = Math.min(from, nextFrom);
+                    int mergedTo = Math.max(from + count, nextFrom + nextCount);
+
+                    return create(ChangeType.ITEM_CHANGED, ChangeType.RANGE_CHANGED,
+                            mergedFrom, mergedTo - mergedFrom)
+                            .setPayload(mergePayloads(previous.mPayload, next.mPayload));
+                }
+            }
+
+            return null;
+        }
+
+        private boolean isInsertion() {
+            return mChangeType == ChangeType.ITEM_INSERTED
+                    || mChangeType == ChangeType.RANGE_INSERTED;
+        }
+
+        private boolean isRemoval() {
+            return mChangeType == ChangeType.ITEM_REMOVED
+                    || mChangeType == ChangeType.RANGE_REMOVED;
+        }
+
+        private boolean isChange() {
+            return mChangeType == ChangeType.ITEM_CHANGED
+                    || mChangeType == ChangeType.RANGE_CHANGED;
+        }
     }
 
-    protected ArrayList<SublimeBaseMenuItem> getAdapterData() {
+    protected List<SublimeBaseMenuItem> getAdapterData() {
         // Possibly redundant check unless this method is
         // called from outside of SublimeMenuPresenterNew.
         // We shouldn't return 'null' here.
@@ -987,33 +1891,185 @@ public class SublimeMenu implements Parcelable {
             Log.i(TAG, "prepareMenuItems()");
         }
 
-        mAdapterData.clear();
-
         boolean hasHeader = mPresenter != null && mPresenter.hasHeader();
 
-        if (hasHeader) {
-            mAdapterData.add(SublimeMenu.HEADER_STUB);
+        mAdapterData.setHeader(hasHeader ? SublimeMenu.HEADER_STUB : null);
+        rebuildAdapterData();
+        mAdapterDataStale = false;
+
+        // The presenter diffs against the rebuilt data, which
+        // already contains any changes not yet delivered.
+        mPendingChanges.clear();
+    }
+
+    /**
+     * Re-indexes all items. Runs in O(n).
+     */
+    private void rebuildAdapterData() {
+        final int size = mItems.size();
+        int[] hideCounts = new int[size];
+        SublimeGroup currentGroup = null;
+
+        for (int i = 0; i < size; ++i) {
+            // Items that have not been created are not created here
+            SublimeBaseMenuItem item = mAdapterData.peek(i);
+            int row = item == null ? mAdapterData.getRow(i) : -1;
+            int groupId = item != null ? item.getGroupId() : mCompactItems.getGroupId(row);
+
+            if (currentGroup == null || currentGroup.getGroupId() != groupId) {
+                currentGroup = getGroup(groupId);
+            }
+
+            hideCounts[i] = getHideCount(item != null ? item.getItemType()
+                    : mCompactItems.getItemType(row), currentGroup);
         }
 
-        int i = 0;
+        mAdapterData.rebuild(hideCounts);
+    }
+
+    /**
+     * Replaces the indexed items with 'items'. Runs in O(n).
+     */
+    private void rebuildAdapterData(List<SublimeBaseMenuItem> items) {
+        final int size = items.size();
+        int[] hideCounts = new int[size];
         SublimeGroup currentGroup = null;
 
-        for (int totalSize = getVisibleItems().size(); i < totalSize; ++i) {
-            SublimeBaseMenuItem item = getVisibleItems().get(i);
+        for (int i = 0; i < size; ++i) {
+            SublimeBaseMenuItem item = items.get(i);
 
             if (currentGroup == null || currentGroup.getGroupId() != item.getGroupId()) {
                 currentGroup = getGroup(item.getGroupId());
             }
 
-            if (currentGroup != null
-                    && (!currentGroup.isVisible()
-                    || (currentGroup.isCollapsed()
-                    && item.getItemType() != SublimeBaseMenuItem.ItemType.GROUP_HEADER))) {
-                continue;
+            hideCounts[i] = getHideCount(item.getItemType(), currentGroup);
+        }
+
+        mAdapterData.build(items, hideCounts);
+    }
+
+    /**
+     * Returns the number of reasons 'group' has for hiding an item.
+     *
+     * @param itemType type of the item
+     * @param group    group the item belongs to, or 'null'
+     * @return 0 if the group doesn't hide the item
+     */
+    private int getHideCount(SublimeBaseMenuItem.ItemType itemType, SublimeGroup group) {
+        if (group == null) {
+            return 0;
+        }
+
+        int hideCount = group.isVisible() ? 0 : 1;
+
+        if (group.isCollapsed()
+                && itemType != SublimeBaseMenuItem.ItemType.GROUP_HEADER) {
+            hideCount++;
+        }
+
+        return hideCount;
+    }
+
+    /**
+     * Brings the hide count of items in [from, to) up-to-date. All of these
+     * items are either shown or hidden together, so the change is added to
+     * {@link #mPendingChanges} as a single range. Runs in O(log n).
+     *
+     * @param from      first menu position (inclusive)
+     * @param to        last menu position (exclusive)
+     * @param hideCount hide count to assign
+     */
+    private void updateAdapterRange(int from, int to, int hideCount) {
+        int adapterPos = mAdapterData.getAdapterPosition(from);
+        int shownBefore = mAdapterData.countShown(from, to);
+
+        mAdapterData.setHideCount(from, to, hideCount);
+
+        int shownAfter = mAdapterData.countShown(from, to);
+
+        if (shownBefore != shownAfter) {
+            addRangeChange(adapterPos, -shownBefore);
+            addRangeChange(adapterPos, shownAfter);
+        }
+    }
+
+    /**
+     * Applies the current state of 'group' to the adapter data. The group's
+     * header (always its first member) is only hidden with the group - other
+     * members are also hidden while the group is collapsed.
+     *
+     * @param group group whose members need to be updated
+     */
+    private void updateAdapterRangeForGroup(SublimeGroup group) {
+        int from = group.getFirstItem().getPositionInMenu();
+        int to = group.getLastItem().getPositionInMenu() + 1;
+
+        SublimeBaseMenuItem header = group.getHeaderItem();
+
+        if (header != null) {
+            updateAdapterRange(from, from + 1, getHideCount(header.getItemType(), group));
+            from++;
+        }
+
+        updateAdapterRange(from, to,
+                (group.isVisible() ? 0 : 1) + (group.isCollapsed() ? 1 : 0));
+    }
+
+    private void addRangeChange(int adapterPos, int run) {
+        if (run == 1) {
+            mPendingChanges.add(
+                    new Change(Change.ChangeType.ITEM_INSERTED, adapterPos, -1, -1, -1));
+        } else if (run > 1) {
+            mPendingChanges.add(
+                    new Change(Change.ChangeType.RANGE_INSERTED, adapterPos, -1, -1, run));
+        } else if (run == -1) {
+            mPendingChanges.add(
+                    new Change(Change.ChangeType.ITEM_REMOVED, adapterPos, -1, -1, -1));
+        } else if (run < -1) {
+            mPendingChanges.add(
+                    new Change(Change.ChangeType.RANGE_REMOVED, adapterPos, -1, -1, -run));
+        }
+    }
+
+    /**
+     * Reports all changes in {@link #mPendingChanges} to the presenter.
+     * If the presenter has missed a change earlier on, or can't be updated
+     * right now, the entire menu is invalidated instead. While a
+     * transaction is open, changes are only recorded. When delivering
+     * per frame, changes are delivered with the next frame.
+     */
+    private void dispatchPendingChanges() {
+        if (mTransactionDepth > 0) return;
+
+        if (mDeliversChangesPerFrame && mPresenter != null && !mBlockUpdates) {
+            if (mAdapterDataStale || mPendingChanges.size() > 0) {
+                scheduleFrameDelivery();
             }
 
-            mAdapterData.add(item);
+            return;
+        }
+
+        deliverPendingChanges();
+    }
+
+    private void deliverPendingChanges() {
+        if (mTransactionDepth > 0) return;
+
+        if (mBlockUpdates || mPresenter == null) {
+            mAdapterDataStale = true;
+        } else if (mAdapterDataStale) {
+            mPresenter.invalidateEntireMenu();
+        } else if (mPendingChanges.size() > 0) {
+            Change.coalesce(mPendingChanges);
+
+            if (mPendingChanges.size() == 1) {
+                mPresenter.reportChange(mPendingChanges.get(0), mAdapterData);
+            } else {
+                mPresenter.reportChanges(mPendingChanges, mAdapterData);
+            }
         }
+
+        mPendingChanges.clear();
     }
 
     //----------------------------------------------------------------//
@@ -1027,55 +2083,174 @@ public class SublimeMenu implements Parcelable {
      * @param itemId id of item that's been changed
      */
     public void onItemChanged(int itemId) {
-        if (mBlockUpdates || mPresenter == null) return;
+        SublimeBaseMenuItem item = getMenuItem(itemId);
 
-        int oldPos = getAdapterPosForId(itemId);
+        if (item != null) {
+            onItemChanged(item);
+        }
+    }
 
-        prepareMenuItems();
+    /**
+     * Called when an item is changed. Only the item's own entry in
+     * the adapter data is re-evaluated.
+     *
+     * @param item item that's been changed
+     */
+    void onItemChanged(SublimeBaseMenuItem item) {
+        if (mBlockUpdates || mPresenter == null) {
+            mAdapterDataStale = true;
+            return;
+        }
+
+        final int position = item.getPositionInMenu();
+
+        if (position == -1) return;
+
+        boolean wasShown = mAdapterData.isShown(position);
 
-        int newPos = getAdapterPosForId(itemId);
+        if (mAdapterData.isVisibleAt(position) != item.isVisible()) {
+            mAdapterData.setVisible(position, item.isVisible());
+        }
+
+        boolean isShown = mAdapterData.isShown(position);
 
-        if (oldPos == -1 && newPos == -1) {
+        if (!wasShown && !isShown) {
             // No change to report
             return;
         }
 
-        if (oldPos == -1) {
-            mPresenter.reportChange(
-                    new Change(Change.ChangeType.ITEM_INSERTED, newPos, -1, -1, -1),
-                    mAdapterData);
-        } else if (newPos == -1) {
-            mPresenter.reportChange(
-                    new Change(Change.ChangeType.ITEM_REMOVED, oldPos, -1, -1, -1),
-                    mAdapterData);
-        } else if (oldPos == newPos) {
-            mPresenter.reportChange(
-                    new Change(Change.ChangeType.ITEM_CHANGED, newPos, -1, -1, -1),
-                    mAdapterData);
+        int adapterPos = mAdapterData.getAdapterPosition(position);
+
+        if (!wasShown) {
+            mPendingChanges.add(
+                    new Change(Change.ChangeType.ITEM_INSERTED, adapterPos, -1, -1, -1));
+        } else if (!isShown) {
+            mPendingChanges.add(
+                    new Change(Change.ChangeType.ITEM_REMOVED, adapterPos, -1, -1, -1));
         } else {
-            mPresenter.reportChange(
-                    new Change(Change.ChangeType.ITEM_MOVED, -1, oldPos, newPos, -1),
-                    mAdapterData);
+            mPendingChanges.add(
+                    new Change(Change.ChangeType.ITEM_CHANGED, adapterPos, -1, -1, -1)
+                            .setPayload(item.takeChangedParts()));
+        }
+
+        dispatchPendingChanges();
+    }
+
+    /**
+     * Called after 'item' has been added to this menu.
+     *
+     * @param item item that was added
+     */
+    private void onItemAdded(SublimeBaseMenuItem item) {
+        if (mBlockUpdates || mPresenter == null) {
+            mAdapterDataStale = true;
+            return;
+        }
+
+        int adapterPos = getAdapterPosForItem(item);
+
+        if (adapterPos != -1) {
+            mPendingChanges.add(
+                    new Change(Change.ChangeType.ITEM_INSERTED, adapterPos, -1, -1, -1));
+            dispatchPendingChanges();
         }
     }
 
+    /**
+     * Called after 'count' items have been added to this menu,
+     * starting at position 'index'.
+     */
+    private void onItemsAdded(int index, int count) {
+        if (mBlockUpdates || mPresenter == null) {
+            mAdapterDataStale = true;
+            return;
+        }
+
+        // Added items are next to each other, and so are
+        // those among them that are shown.
+        addRangeChange(mAdapterData.getAdapterPosition(index),
+                mAdapterData.countShown(index, index + count));
+        dispatchPendingChanges();
+    }
+
     /**
      * Called by {@link SublimeBaseMenuItem} after a batch update.
      */
     void onItemsChanged() {
-        if (mBlockUpdates || mPresenter == null) return;
+        if (mBlockUpdates || mPresenter == null || mTransactionDepth > 0) {
+            // Invalidated when the transaction is committed
+            mAdapterDataStale = true;
+            return;
+        }
+
+        if (mDeliversChangesPerFrame) {
+            mAdapterDataStale = true;
+            scheduleFrameDelivery();
+            return;
+        }
 
         mPresenter.invalidateEntireMenu();
     }
 
-    private int getAdapterPosForId(int itemId) {
-        for (int i = 0; i < mAdapterData.size(); i++) {
-            if (mAdapterData.get(i).getItemId() == itemId) {
-                return i;
-            }
+    /**
+     * Keeps the visible item counts up-to-date. Called whenever
+     * an item's visibility changes.
+     *
+     * @param item Item whose visibility has changed
+     */
+    void onItemVisibilityChanged(SublimeBaseMenuItem item) {
+        if (item.getPositionInMenu() == -1) {
+            // Counted when the item is added
+            return;
+        }
+
+        mVisibleItemCount += item.isVisible() ? 1 : -1;
+
+        SublimeGroup group = getGroup(item.getGroupId());
+
+        if (group != null) {
+            group.onMemberVisibilityChanged(item);
+        }
+    }
+
+    /**
+     * Called when an item's state (checked/enabled etc.) has changed
+     * without affecting which items are shown. The adapter data
+     * stays as it is &amp; only the item's row is refreshed.
+     *
+     * @param item item that's been changed
+     */
+    void onItemStateChanged(SublimeBaseMenuItem item) {
+        if (mBlockUpdates || mPresenter == null) {
+            mAdapterDataStale = true;
+            return;
+        }
+
+        int adapterPos = getAdapterPosForItem(item);
+
+        if (adapterPos != -1) {
+            mPendingChanges.add(
+                    new Change(Change.ChangeType.ITEM_CHANGED, adapterPos, -1, -1, -1)
+                            .setPayload(item.takeChangedParts()));
+            dispatchPendingChanges();
+        }
+    }
+
+    /**
+     * Finds the adapter position of 'item'. Runs in O(log n).
+     *
+     * @param item item to look for
+     * @return adapter position of the item, or -1 if it isn't shown
+     */
+    private int getAdapterPosForItem(SublimeBaseMenuItem item) {
+        final int position = item.getPositionInMenu();
+
+        if (position == -1) {
+            return -1;
         }
 
-        return -1;
+        return mAdapterData.isShown(position) ?
+                mAdapterData.getAdapterPosition(position) : -1;
     }
 
     //----------------------------------------------------------------//
@@ -1089,13 +2264,7 @@ public class SublimeMenu implements Parcelable {
      * @return SublimeGroup with id == groupId if found, 'null' otherwise
      */
     public SublimeGroup getGroup(int groupId) {
-        for (int i = 0; i < mGroups.size(); i++) {
-            if (mGroups.get(i).getGroupId() == groupId) {
-                return mGroups.get(i);
-            }
-        }
-
-        return null;
+        return mGroupsById.get(groupId);
     }
 
     /**
@@ -1105,49 +2274,27 @@ public class SublimeMenu implements Parcelable {
      * @param collapsed 'true' if group has been collapsed, 'false' if expanded
      */
     protected void onGroupExpandedOrCollapsed(int groupId, boolean collapsed) {
-        if (mBlockUpdates || mPresenter == null) return;
+        if (mBlockUpdates || mPresenter == null) {
+            mAdapterDataStale = true;
+            return;
+        }
 
-        List<SublimeBaseMenuItem> groupItems = getItemsForGroup(groupId);
+        SublimeGroup group = getGroup(groupId);
 
-        if (groupItems.size() > 0) {
-            int headerPos = getAdapterPosForId(groupItems.get(0).getItemId());
-
-            int visibleItemCountForGroupBeforeUpdate = getVisibleItemCountForGroup(groupItems);
-            prepareMenuItems();
-            int visibleItemCountForGroupAfterUpdate = getVisibleItemCountForGroup(groupItems);
-
-            if (headerPos != -1) {
-                // GroupHeader qualifies for ITEM_CHANGED.
-                mPresenter.reportChange(
-                        new Change(Change.ChangeType.ITEM_CHANGED, headerPos, -1, -1, -1),
-                        mAdapterData);
-
-                if (collapsed) {
-                    // The '> 1' check determines if there are any
-                    // GroupItems that are *visible*.
-                    // '- 1' because the GroupHeader does not
-                    // qualify for RANGE_REMOVED.
-                    if (visibleItemCountForGroupBeforeUpdate > 1) {
-                        mPresenter.reportChange(
-                                new Change(Change.ChangeType.RANGE_REMOVED, headerPos + 1,
-                                        //-1, -1, groupItems.size() - 1),
-                                        -1, -1, visibleItemCountForGroupBeforeUpdate - 1),
-                                mAdapterData);
-                    }
-                } else {
-                    if (visibleItemCountForGroupAfterUpdate > 1) {
-                        mPresenter.reportChange(
-                                new Change(Change.ChangeType.RANGE_INSERTED, headerPos + 1,
-                                        //-1, -1, groupItems.size() - 1),
-                                        -1, -1, visibleItemCountForGroupAfterUpdate - 1),
-                                mAdapterData);
-                    }
-                }
-            } else {
-                // be safe
-                mPresenter.invalidateEntireMenu();
-            }
+        if (group == null || group.getItemCount() == 0) return;
+
+        int headerPos = group.getHeaderItem() != null ?
+                getAdapterPosForItem(group.getHeaderItem()) : -1;
+
+        if (headerPos != -1) {
+            // GroupHeader qualifies for ITEM_CHANGED.
+            mPendingChanges.add(
+                    new Change(Change.ChangeType.ITEM_CHANGED, headerPos, -1, -1, -1));
         }
+
+        // Only the group's own range needs to be updated
+        updateAdapterRangeForGroup(group);
+        dispatchPendingChanges();
     }
 
     /**
@@ -1157,47 +2304,17 @@ public class SublimeMenu implements Parcelable {
      * @param visible 'true' if the group is now visible, 'false' otherwise
      */
     protected void onGroupVisibilityChanged(int groupId, boolean visible) {
-        if (mBlockUpdates || mPresenter == null) return;
+        if (mBlockUpdates || mPresenter == null) {
+            mAdapterDataStale = true;
+            return;
+        }
 
-        List<SublimeBaseMenuItem> groupItems = getItemsForGroup(groupId);
+        SublimeGroup group = getGroup(groupId);
 
-        if (groupItems.size() > 0) {
-            boolean invalidateEntireMenu = false;
-
-            if (visible) {
-                prepareMenuItems();
-                int headerPos = getAdapterPosForId(groupItems.get(0).getItemId());
-                if (headerPos != -1) {
-                    mPresenter.reportChange(
-                            new Change(Change.ChangeType.RANGE_INSERTED, headerPos,
-                                    //-1, -1, groupItems.size()),
-                                    -1, -1, getVisibleItemCountForGroup(groupItems)),
-                            mAdapterData);
-                } else {
-                    // be safe
-                    invalidateEntireMenu = true;
-                }
-            } else {
-                // Get position & count before preparing updated menu
-                int headerPos = getAdapterPosForId(groupItems.get(0).getItemId());
-                int visibleItemCountForGroup = getVisibleItemCountForGroup(groupItems);
-                prepareMenuItems();
-                if (headerPos != -1) {
-                    mPresenter.reportChange(
-                            new Change(Change.ChangeType.RANGE_REMOVED, headerPos,
-                                    //-1, -1, groupItems.size()),
-                                    -1, -1, visibleItemCountForGroup),
-                            mAdapterData);
-                } else {
-                    invalidateEntireMenu = true;
-                }
-            }
+        if (group == null || group.getItemCount() == 0) return;
 
-            if (invalidateEntireMenu) {
-                // be safe
-                mPresenter.invalidateEntireMenu();
-            }
-        }
+        updateAdapterRangeForGroup(group);
+        dispatchPendingChanges();
     }
 
     /**
@@ -1206,25 +2323,23 @@ public class SublimeMenu implements Parcelable {
      * @param sublimeGroup group for which 'collapsible' status has changed
      */
     protected void onGroupCollapsibleStatusChanged(SublimeGroup sublimeGroup) {
-        if (mBlockUpdates || mPresenter == null) return;
+        if (mBlockUpdates || mPresenter == null) {
+            mAdapterDataStale = true;
+            return;
+        }
 
-        List<SublimeBaseMenuItem> groupItems = getItemsForGroup(sublimeGroup.getGroupId());
+        if (sublimeGroup.getItemCount() == 0) return;
 
-        if (groupItems.size() > 0) {
-            int headerPos = getAdapterPosForId(groupItems.get(0).getItemId());
-            if (headerPos != -1) {
-                if (sublimeGroup.isCollapsible() || !sublimeGroup.isCollapsed()) {
-                    // Todo: check if call to 'prepareMenuItems()' is required
-                    mPresenter.reportChange(
-                            new Change(Change.ChangeType.ITEM_CHANGED, headerPos,
-                                    -1, -1, -1),
-                            mAdapterData);
-                } else {
-                    sublimeGroup.setStateCollapsed(false);
-                }
+        int headerPos = getAdapterPosForItem(sublimeGroup.getFirstItem());
+
+        if (headerPos != -1) {
+            if (sublimeGroup.isCollapsible() || !sublimeGroup.isCollapsed()) {
+                mPendingChanges.add(
+                        new Change(Change.ChangeType.ITEM_CHANGED, headerPos,
+                                -1, -1, -1));
+                dispatchPendingChanges();
             } else {
-                // be safe
-                mPresenter.invalidateEntireMenu();
+                sublimeGroup.setStateCollapsed(false);
             }
         }
     }
@@ -1237,7 +2352,10 @@ public class SublimeMenu implements Parcelable {
      *                otherwise
      */
     protected void onGroupEnabledOrDisabled(int groupId, boolean enabled) {
-        if (mBlockUpdates || mPresenter == null) return;
+        if (mBlockUpdates || mPresenter == null) {
+            mAdapterDataStale = true;
+            return;
+        }
 
         List<SublimeBaseMenuItem> groupItems = getItemsForGroup(groupId);
 
@@ -1246,16 +2364,17 @@ public class SublimeMenu implements Parcelable {
         }
 
         if (groupItems.size() > 0) {
-            int firstPos = getAdapterPosForId(groupItems.get(0).getItemId());
-            if (firstPos != -1) {
-                mPresenter.reportChange(
-                        new Change(Change.ChangeType.RANGE_CHANGED, firstPos,
-                                //-1, -1, groupItems.size()),
-                                -1, -1, getVisibleItemCountForGroup(groupItems)),
-                        mAdapterData);
-            } else {
-                // be safe
-                mPresenter.invalidateEntireMenu();
+            SublimeGroup group = getGroup(groupId);
+            int from = group.getFirstItem().getPositionInMenu();
+            int to = group.getLastItem().getPositionInMenu() + 1;
+            int shown = mAdapterData.countShown(from, to);
+
+            if (shown > 0) {
+                mPendingChanges.add(
+                        new Change(Change.ChangeType.RANGE_CHANGED,
+                                mAdapterData.getAdapterPosition(from), -1, -1, shown)
+                                .setPayload(Change.PAYLOAD_ENABLED));
+                dispatchPendingChanges();
             }
         }
     }
@@ -1297,6 +2416,158 @@ public class SublimeMenu implements Parcelable {
         }
     }
 
+    //----------------------------------------------------------------//
+    //--------------------------ItemsBuilder--------------------------//
+    //----------------------------------------------------------------//
+
+    /**
+     * Collects items for a group &amp; adds them to the menu in one go.
+     * Useful for filling groups with many entries (accounts, labels etc.):
+     * <pre>
+     * menu.newItemsBuilder(groupId)
+     *         .addTextItem("Inbox", null, true)
+     *         .addTextWithBadgeItem("Drafts", null, "3", true)
+     *         .add();
+     * </pre>
+     * If the menu stores items compactly, the builder does not create
+     * item objects - see {@link SublimeMenu#setStoresItemsCompactly(boolean)}.
+     */
+    public static class ItemsBuilder {
+        private final SublimeMenu mMenu;
+        private final int mGroupId;
+        private final ArrayList<SublimeBaseMenuItem> mItems = new ArrayList<>();
+
+        // Items collected without creating them, or 'null'
+        private CompactItemStore mRows;
+
+        ItemsBuilder(SublimeMenu menu, int groupId) {
+            mMenu = menu;
+            mGroupId = groupId;
+
+            if (menu.storesItemsCompactly()) {
+                mRows = new CompactItemStore();
+            }
+        }
+
+        /**
+         * Reserves room for 'count' more items.
+         *
+         * @param count number of items that will be added
+         * @return this {@link ItemsBuilder} for chaining
+         */
+        public ItemsBuilder ensureCapacity(int count) {
+            if (mRows != null) {
+                mRows.ensureCapacity(mRows.size() + count);
+            } else {
+                mItems.ensureCapacity(mItems.size() + count);
+            }
+
+            return this;
+        }
+
+        public ItemsBuilder addTextItem(CharSequence title, CharSequence hint,
+                                        boolean showsIconSpace) {
+            return add(SublimeBaseMenuItem.ItemType.TEXT, title, hint,
+                    null, showsIconSpace);
+        }
+
+        public ItemsBuilder addTextWithBadgeItem(CharSequence title, CharSequence hint,
+                                                 CharSequence badgeText,
+                                                 boolean showsIconSpace) {
+            return add(SublimeBaseMenuItem.ItemType.BADGE, title, hint,
+                    badgeText, showsIconSpace);
+        }
+
+        public ItemsBuilder addCheckboxItem(CharSequence title, CharSequence hint,
+                                            boolean showsIconSpace) {
+            return add(SublimeBaseMenuItem.ItemType.CHECKBOX, title, hint,
+                    null, showsIconSpace);
+        }
+
+        public ItemsBuilder addSwitchItem(CharSequence title, CharSequence hint,
+                                          boolean showsIconSpace) {
+            return add(SublimeBaseMenuItem.ItemType.SWITCH, title, hint,
+                    null, showsIconSpace);
+        }
+
+        public ItemsBuilder addSeparatorItem() {
+            return add(SublimeBaseMenuItem.ItemType.SEPARATOR, null, null, null, false);
+        }
+
+        /**
+         * Collects an item - same as the matching 'create' method of the menu.
+         */
+        private ItemsBuilder add(SublimeBaseMenuItem.ItemType itemType,
+                                 CharSequence title, CharSequence hint,
+                                 CharSequence badgeText, boolean showsIconSpace) {
+            int itemId = mMenu.generateUniqueItemID();
+
+            if (mRows != null) {
+                mRows.add(itemId, mGroupId, itemType, title, hint,
+                        badgeText, showsIconSpace);
+            } else {
+                mItems.add(mMenu.createInternal(mGroupId, itemId, title, hint,
+                        itemType, false /*valueProvidedAsync*/, badgeText,
+                        showsIconSpace));
+            }
+
+            return this;
+        }
+
+        /**
+         * Returns the items collected so far, in order. Items can be
+         * customized (icons, checked state etc.) before calling {@link #add()}.
+         * If the menu stores items compactly, the items collected so far
+         * are created here, &amp; this builder creates items from now on.
+         *
+         * @return collected items
+         */
+        public List<SublimeBaseMenuItem> getItems() {
+            if (mRows != null) {
+                mItems.ensureCapacity(mItems.size() + mRows.size());
+
+                for (int row = 0; row < mRows.getRowCount(); row++) {
+                    mItems.add(mMenu.createItem(mRows, row));
+                }
+
+                mRows = null;
+            }
+
+            return Collections.unmodifiableList(mItems);
+        }
+
+        /**
+         * Adds all collected items at the end of the group.
+         * See {@link SublimeMenu#addItems(int, List)}.
+         *
+         * @return the added items. If the items were not created, each
+         * one is created when it is first retrieved from the returned
+         * list.
+         */
+        public List<SublimeBaseMenuItem> add() {
+            if (mRows == null) {
+                mMenu.addItems(mGroupId, mItems);
+                return getItems();
+            }
+
+            mMenu.addCompactItems(mGroupId, mRows);
+
+            final CompactItemStore rows = mRows;
+
+            return new AbstractList<SublimeBaseMenuItem>() {
+                @Override
+                public SublimeBaseMenuItem get(int index) {
+                    return mMenu.getMenuItem(rows.getId(index));
+                }
+
+                @Override
+                public int size() {
+                    return rows.getRowCount();
+                }
+            };
+        }
+    }
+
     //----------------------------------------------------------------//
     //---------------------------Parcelable---------------------------//
     //----------------------------------------------------------------//
@@ -1308,16 +2579,45 @@ public class SublimeMenu implements Parcelable {
     private void readParcel(Parcel in) {
         mMenuResourceID = in.readInt();
 
-        in.readTypedList(mItems, SublimeBaseMenuItem.CREATOR);
+        ArrayList<SublimeBaseMenuItem> items = new ArrayList<>();
+        in.readTypedList(items, SublimeBaseMenuItem.CREATOR);
 
-        for (SublimeBaseMenuItem item : mItems) {
+        for (SublimeBaseMenuItem item : items) {
             item.setParentMenu(this);
+
+            if (!mItemsById.containsKey(item.getItemId())) {
+                mItemsById.put(item.getItemId(), item);
+            }
+
+            mItemIdAllocator.markUsed(item.getItemId());
+
+            if (item.isVisible()) {
+                mVisibleItemCount++;
+            }
         }
 
         in.readTypedList(mGroups, SublimeGroup.CREATOR);
 
         for (SublimeGroup group : mGroups) {
             group.setParentMenu(this);
+
+            if (!mGroupsById.containsKey(group.getGroupId())) {
+                mGroupsById.put(group.getGroupId(), group);
+            }
+
+            mGroupIdAllocator.markUsed(group.getGroupId());
+        }
+
+        // Items get their positions here - groups
+        // are restored after their members
+        rebuildAdapterData(items);
+
+        for (SublimeBaseMenuItem item : mItems) {
+            SublimeGroup group = getGroup(item.getGroupId());
+
+            if (group != null) {
+                group.onMemberAdded(item);
+            }
         }
     }
 
@@ -1329,7 +2629,23 @@ public class SublimeMenu implements Parcelable {
     @Override
     public void writeToParcel(Parcel dest, int flags) {
         dest.writeInt(mMenuResourceID);
-        dest.writeTypedList(mItems);
+
+        // Same as writeTypedList(mItems), but items that have not been
+        // created are written through a temporary item
+        final int size = mItems.size();
+        dest.writeInt(size);
+
+        for (int i = 0; i < size; i++) {
+            SublimeBaseMenuItem item = mAdapterData.peek(i);
+
+            if (item == null) {
+                item = createItem(mCompactItems, mAdapterData.getRow(i));
+            }
+
+            dest.writeInt(1);
+            item.writeToParcel(dest, 0);
+        }
+
         dest.writeTypedList(mGroups);
     }
 
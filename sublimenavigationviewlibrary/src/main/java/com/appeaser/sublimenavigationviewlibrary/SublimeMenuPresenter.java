@@ -17,6 +17,10 @@
 package com.appeaser.sublimenavigationviewlibrary;
 
 import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.support.annotation.LayoutRes;
 import android.support.annotation.NonNull;
 import android.support.v7.widget.LinearLayoutManager;
@@ -29,6 +33,7 @@ import android.view.ViewGroup;
 import android.widget.LinearLayout;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -38,6 +43,14 @@ import java.util.List;
  */
 public class SublimeMenuPresenter {
     private static final String TAG = "Presenter";
+
+    // Diffs spanning more rows than this are computed on a worker thread
+    private static final int ASYNC_DIFF_THRESHOLD = 1000;
+
+    // Stable ID of the header row - item IDs are 'int's, so
+    // this can't clash with any of them
+    private static final long HEADER_STABLE_ID = 1L << 32;
+
     private SublimeNavMenuView mMenuView;
     private LinearLayout mHeader;
     private SublimeMenu mMenu;
@@ -50,6 +63,40 @@ public class SublimeMenuPresenter {
 
     private boolean mInitializing;
 
+    // Incremented for each diff - results of older diffs are dropped.
+    // While a diff is pending, the adapter still holds the rows it
+    // was computed against.
+    private int mDiffGeneration;
+    private boolean mDiffPending;
+
+    // Set when every row has to be bound again, e.g. with a new themer
+    private boolean mRebindAll;
+
+    // Number of rows bound so far - see getBindCount()
+    private int mBindCount;
+
+    // Set by keepSharedRowsOnNextUpdate()
+    private boolean mKeepSharedRows;
+
+    // Set by setUsesFlatRows(boolean)
+    private boolean mUsesFlatRows;
+
+    // Text layouts of flat rows
+    private TextLayoutCache mTextLayoutCache;
+
+    // Number of rows, from the first visible one, whose text
+    // layouts are built ahead of time when the menu changes
+    private static final int MAX_PREFETCHED_ROWS = 64;
+
+    // Pool the menu view recycles rows into - see setRecycledViewPool(...)
+    private RecyclerView.RecycledViewPool mRecycledViewPool;
+
+    // Maximum number of recycled rows kept per view type. A drawer
+    // can show a dozen or more text rows at once, more than the
+    // default of 5 RecyclerView keeps.
+    private static final int MAX_RECYCLED_TEXT_ROWS = 20;
+    private static final int MAX_RECYCLED_OTHER_ROWS = 8;
+
     public SublimeMenuPresenter() {
         mInitializing = true;
     }
@@ -75,38 +122,253 @@ public class SublimeMenuPresenter {
         if (mThemer == null) {
             mThemer = new SublimeThemer(context);
         }
+
+        if (mTextLayoutCache == null) {
+            mTextLayoutCache = new TextLayoutCache(context);
+        }
     }
 
     void setThemer(SublimeThemer sublimeThemer) {
         mThemer = sublimeThemer;
+        mRebindAll = true;
+        invalidateEntireMenu();
+    }
+
+    /**
+     * Sets whether Text &amp; Text with Badge items are shown as flat
+     * rows - a single {@link SublimeFlatItemView} that draws the icon,
+     * title, hint &amp; badge itself, instead of a layout of several
+     * views. Flat rows take less time to measure &amp; lay out, and
+     * are styled by the same {@link SublimeThemer}. Badges whose value
+     * is provided asynchronously are still shown with a progress bar
+     * in a regular row. Off by default.
+     *
+     * @param usesFlatRows 'true' to show flat rows
+     */
+    public void setUsesFlatRows(boolean usesFlatRows) {
+        if (usesFlatRows == mUsesFlatRows) {
+            return;
+        }
+
+        mUsesFlatRows = usesFlatRows;
+
+        // Row types change - every row is created afresh
+        mRebindAll = true;
         invalidateEntireMenu();
     }
 
+    public boolean usesFlatRows() {
+        return mUsesFlatRows;
+    }
+
     public SublimeNavMenuView getMenuView(ViewGroup root) {
         if (mMenuView == null) {
             mMenuView = (SublimeNavMenuView) mLayoutInflater
                     .inflate(R.layout.sublime_navigation_menu_view, root, false);
             mMenuView.setLayoutManager(new LinearLayoutManager(root.getContext(),
                     LinearLayoutManager.VERTICAL, false));
+
+            if (mRecycledViewPool == null) {
+                mRecycledViewPool = createRecycledViewPool();
+            }
+
+            mMenuView.setRecycledViewPool(mRecycledViewPool);
             if (mAdapter == null) {
                 mAdapter = new MenuRecyclerAdapter();
-                mAdapter.setHasStableIds(false);
+                mAdapter.setHasStableIds(true);
             }
 
             mHeader = (LinearLayout) mLayoutInflater
                     .inflate(R.layout.sublime_menu_header_item, mMenuView, false);
             mMenuView.setAdapter(mAdapter);
+
+            mMenuView.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+                @Override
+                public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                           int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                    // Text layouts depend on the width of the rows. Rows on
+                    // screen have just been laid out - only the rows
+                    // below them are prefetched.
+                    if (right - left != oldRight - oldLeft) {
+                        prefetchTextLayouts(mAdapter.getItems(0, mAdapter.getItemCount()),
+                                false);
+                    }
+                }
+            });
         }
 
         return mMenuView;
     }
 
+    /**
+     * Creates a {@link RecyclerView.RecycledViewPool} sized for the rows
+     * of a navigation menu. Can be passed to
+     * {@link #setRecycledViewPool(RecyclerView.RecycledViewPool)} of
+     * several presenters, so that rows recycled by one can be reused
+     * by the others.
+     *
+     * @return new pool
+     */
+    public static RecyclerView.RecycledViewPool createRecycledViewPool() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+
+        for (int viewType = 0; viewType < MenuRecyclerAdapter.VIEW_TYPE_COUNT; viewType++) {
+            pool.setMaxRecycledViews(viewType, getMaxRecycledRows(viewType));
+        }
+
+        return pool;
+    }
+
+    private static int getMaxRecycledRows(int viewType) {
+        switch (viewType) {
+            case MenuRecyclerAdapter.VIEW_TYPE_NAVIGATION_HEADER:
+                // Each presenter has a single header view of its own
+                return 0;
+            case MenuRecyclerAdapter.VIEW_TYPE_TEXT:
+            case MenuRecyclerAdapter.VIEW_TYPE_FLAT:
+                return MAX_RECYCLED_TEXT_ROWS;
+            default:
+                return MAX_RECYCLED_OTHER_ROWS;
+        }
+    }
+
+    /**
+     * Inflates rows for the current menu ahead of time &amp; puts them in the
+     * pool, so that the first time the menu is shown (the drawer opens),
+     * rows are only bound. For each row type the menu contains, up to
+     * 'maxRowsPerType' rows are inflated. Rows are inflated one at a time,
+     * whenever the main thread is idle, so frames drawn in the meantime
+     * aren't held up. Must be called on the main thread, after
+     * {@link #getMenuView(ViewGroup)}.
+     *
+     * @param maxRowsPerType maximum number of rows to inflate per row type,
+     *                       typically the number of rows that fit on screen
+     */
+    public void preInflateRows(int maxRowsPerType) {
+        if (mAdapter == null) {
+            Log.e(TAG, "Cannot pre-inflate rows until the menu view is created.");
+            return;
+        }
+
+        int[] rowCounts = new int[MenuRecyclerAdapter.VIEW_TYPE_COUNT];
+
+        for (int i = 0, size = mAdapter.getItemCount(); i < size; i++) {
+            rowCounts[mAdapter.getItemViewType(i)]++;
+        }
+
+        for (int viewType = 0; viewType < rowCounts.length; viewType++) {
+            rowCounts[viewType] = Math.min(rowCounts[viewType],
+                    Math.min(maxRowsPerType, getMaxRecycledRows(viewType)));
+        }
+
+        new RowPreInflater(rowCounts).run();
+    }
+
+    /**
+     * Inflates rows into the pool while the main thread is idle.
+     * Each row is inflated in an idle pass of its own - a message
+     * is posted between rows, so that the queue goes idle again.
+     */
+    private class RowPreInflater implements MessageQueue.IdleHandler, Runnable {
+        private final int[] mRowCounts;
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+        private int mViewType;
+
+        RowPreInflater(int[] rowCounts) {
+            mRowCounts = rowCounts;
+        }
+
+        @Override
+        public void run() {
+            Looper.myQueue().addIdleHandler(this);
+        }
+
+        @Override
+        public boolean queueIdle() {
+            while (mViewType < mRowCounts.length && mRowCounts[mViewType] == 0) {
+                mViewType++;
+            }
+
+            if (mViewType == mRowCounts.length) {
+                return false;
+            }
+
+            mRecycledViewPool.putRecycledView(mAdapter.createViewHolder(mMenuView, mViewType));
+            mRowCounts[mViewType]--;
+
+            // Come back for the next row once the queue is idle again
+            mHandler.post(this);
+            return false;
+        }
+    }
+
+    /**
+     * Sets the pool the menu view recycles rows into. By default, each
+     * presenter uses a pool of its own, created with
+     * {@link #createRecycledViewPool()}.
+     * <p/>
+     * Rows keep the Context they were inflated with. Share a pool
+     * between presenters that live in the same Activity (a drawer
+     * &amp; a permanent drawer, for instance) - a pool that outlives
+     * its Activity would leak it.
+     *
+     * @param pool pool to use
+     */
+    public void setRecycledViewPool(@NonNull RecyclerView.RecycledViewPool pool) {
+        mRecycledViewPool = pool;
+
+        if (mMenuView != null) {
+            mMenuView.setRecycledViewPool(pool);
+        }
+    }
+
+    /**
+     * Reports a single change - the change is applied to the adapter
+     * data as a positional edit &amp; then notified. Batches that
+     * coalesce to one change are delivered here.
+     *
+     * @param change    change that was made
+     * @param freshData adapter data after the change
+     */
     protected void reportChange(SublimeMenu.Change change,
                                 List<SublimeBaseMenuItem> freshData) {
         if (mAdapter == null) return;
 
-        mAdapter.refreshData(freshData);
+        if (mDiffPending) {
+            // 'change' is relative to rows the adapter doesn't hold yet
+            dispatchDiff(freshData);
+            return;
+        }
+
+        if (mAdapter.applyChange(change, freshData)) {
+            notifyChange(change);
+        }
+    }
+
+    /**
+     * Reports a set of changes - the changes are applied to the
+     * adapter data as positional edits &amp; then notified in order.
+     *
+     * @param changes   changes in the order they were made
+     * @param freshData adapter data after all changes
+     */
+    protected void reportChanges(List<SublimeMenu.Change> changes,
+                                 List<SublimeBaseMenuItem> freshData) {
+        if (mAdapter == null) return;
+
+        if (mDiffPending) {
+            dispatchDiff(freshData);
+            return;
+        }
+
+        if (mAdapter.applyChanges(changes, freshData)) {
+            for (int i = 0, size = changes.size(); i < size; i++) {
+                notifyChange(changes.get(i));
+            }
+        }
+    }
 
+    private void notifyChange(SublimeMenu.Change change) {
         switch (change.getChangeType()) {
             case ITEM_INSERTED:
                 mAdapter.notifyItemInserted(change.getAffectedPosition());
@@ -115,7 +377,8 @@ public class SublimeMenuPresenter {
                 mAdapter.notifyItemRemoved(change.getAffectedPosition());
                 break;
             case ITEM_CHANGED:
-                mAdapter.notifyItemChanged(change.getAffectedPosition());
+                mAdapter.notifyItemChanged(change.getAffectedPosition(),
+                        payloadFor(change));
                 break;
             case ITEM_MOVED:
                 mAdapter.notifyItemMoved(change.getMovedFromPosition(),
@@ -131,7 +394,7 @@ public class SublimeMenuPresenter {
                 break;
             case RANGE_CHANGED:
                 mAdapter.notifyItemRangeChanged(change.getAffectedPosition(),
-                        change.getNumberOfAffectedItems());
+                        change.getNumberOfAffectedItems(), payloadFor(change));
                 break;
             default:
                 /* INVALIDATE_ENTIRE_MENU */
@@ -140,6 +403,14 @@ public class SublimeMenuPresenter {
         }
     }
 
+    /**
+     * Returns the payload to notify 'change' with - 'null' if
+     * the affected rows have to be bound afresh.
+     */
+    private static Object payloadFor(SublimeMenu.Change change) {
+        return change.getPayload() == 0 ? null : Integer.valueOf(change.getPayload());
+    }
+
     public void invalidateEntireMenu() {
         if (mInitializing) return;
 
@@ -147,11 +418,190 @@ public class SublimeMenuPresenter {
             Log.i(TAG, "invalidateEntireMenu()");
         }
 
-        reportChange(
-                new SublimeMenu.Change(
-                        SublimeMenu.Change.ChangeType.INVALIDATE_ENTIRE_MENU,
-                        -1, -1, -1, -1),
-                mMenu.getAdapterData());
+        List<SublimeBaseMenuItem> freshData = mMenu.getAdapterData();
+
+        if (mAdapter == null) return;
+
+        dispatchDiff(freshData);
+    }
+
+    /**
+     * Updates the adapter to 'freshData' with the minimal set of
+     * insertions, removals, moves &amp; changes. Rows are matched by
+     * item ID. Large diffs are computed on a worker thread &amp;
+     * applied on the main thread once done.
+     *
+     * @param freshData adapter data to present
+     */
+    private void dispatchDiff(List<SublimeBaseMenuItem> freshData) {
+        final ArrayList<SublimeBaseMenuItem> newItems = new ArrayList<>(freshData);
+        final int generation = ++mDiffGeneration;
+        final boolean keepSharedRows = mKeepSharedRows;
+        mKeepSharedRows = false;
+        final int oldSize = mAdapter.getItemCount(), newSize = newItems.size();
+
+        // Snapshots are taken here - items may change in the meantime
+        final int[] oldKeys = new int[oldSize], oldHashes = new int[oldSize];
+        final int[] newKeys = new int[newSize], newHashes = new int[newSize];
+
+        for (int i = 0; i < oldSize; i++) {
+            SublimeBaseMenuItem item = mAdapter.getItem(i);
+            oldKeys[i] = item.getItemId();
+            // Only the content of bound rows is of interest
+            oldHashes[i] = item.isBound() ? item.getBoundContentHash() : getRowHash(item);
+
+            if (!keepSharedRows) {
+                oldHashes[i] = 31 * oldHashes[i] + System.identityHashCode(item);
+            }
+        }
+
+        for (int i = 0; i < newSize; i++) {
+            SublimeBaseMenuItem item = newItems.get(i);
+            newKeys[i] = item.getItemId();
+            newHashes[i] = getRowHash(item);
+
+            if (!keepSharedRows) {
+                // A row showing a different item with the same ID (after
+                // switching menus, or once an ID is reused) is bound again
+                newHashes[i] = 31 * newHashes[i] + System.identityHashCode(item);
+            }
+        }
+
+        if (oldSize + newSize <= ASYNC_DIFF_THRESHOLD) {
+            // Rows on screen are bound in this frame, before
+            // a prefetch could be done with them
+            prefetchTextLayouts(newItems, false);
+            applyDiff(newItems, MenuDiffer.diff(oldKeys, oldHashes, newKeys, newHashes),
+                    keepSharedRows);
+            return;
+        }
+
+        if (Config.DEBUG) {
+            Log.i(TAG, "Diffing " + oldSize + " -> " + newSize + " rows in the background");
+        }
+
+        mDiffPending = true;
+
+        // Tasks run one at a time - text for the rows on screen is
+        // laid out before the diff is applied & these rows are bound
+        prefetchTextLayouts(newItems, true);
+
+        new AsyncTask<Void, Void, List<SublimeMenu.Change>>() {
+            @Override
+            protected List<SublimeMenu.Change> doInBackground(Void... params) {
+                return MenuDiffer.diff(oldKeys, oldHashes, newKeys, newHashes);
+            }
+
+            @Override
+            protected void onPostExecute(List<SublimeMenu.Change> changes) {
+                if (generation == mDiffGeneration) {
+                    applyDiff(newItems, changes, keepSharedRows);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Applies the result of {@link #dispatchDiff(List)}.
+     *
+     * @param newItems       adapter data the diff was computed against
+     * @param changes        changes to notify, or 'null' if the diff failed
+     * @param keepSharedRows 'true' if rows were matched by ID &amp; content only
+     */
+    private void applyDiff(ArrayList<SublimeBaseMenuItem> newItems,
+                           List<SublimeMenu.Change> changes, boolean keepSharedRows) {
+        mDiffPending = false;
+        mAdapter.setItems(newItems);
+
+        if (changes == null) {
+            mRebindAll = false;
+            mAdapter.notifyDataSetChanged();
+            return;
+        }
+
+        for (int i = 0, size = changes.size(); i < size; i++) {
+            notifyChange(changes.get(i));
+        }
+
+        if (mRebindAll) {
+            mRebindAll = false;
+            mAdapter.notifyItemRangeChanged(0, mAdapter.getItemCount());
+        } else if (keepSharedRows) {
+            // Rows matched across menus still point at the outgoing
+            // menu's items - swap them in without rebuilding the rows
+            mAdapter.notifyItemRangeChanged(0, mAdapter.getItemCount(),
+                    SublimeMenu.Change.PAYLOAD_ITEM);
+        }
+    }
+
+    /**
+     * Builds the text layouts of flat rows for 'items' on a worker thread,
+     * so that these rows, once bound, only attach layouts that are measured
+     * already. Needs the width of the rows, so nothing is done until the
+     * menu view has been laid out.
+     *
+     * @param items              adapter data the rows will show
+     * @param includeVisibleRows 'false' to start below the rows on screen -
+     *                           these are bound before a prefetch is done
+     */
+    private void prefetchTextLayouts(List<SublimeBaseMenuItem> items,
+                                     boolean includeVisibleRows) {
+        if (!mUsesFlatRows || mMenuView == null) return;
+
+        int rowWidth = mMenuView.getWidth()
+                - mMenuView.getPaddingLeft() - mMenuView.getPaddingRight();
+
+        if (rowWidth <= 0) return;
+
+        LinearLayoutManager layoutManager = (LinearLayoutManager) mMenuView.getLayoutManager();
+        int from = includeVisibleRows ? layoutManager.findFirstVisibleItemPosition()
+                : layoutManager.findLastVisibleItemPosition() + 1;
+        int count = items.size();
+
+        // Positions are those of the rows on screen now - close
+        // enough, layouts are looked up by text & width
+        from = Math.min(Math.max(from, 0), count);
+        mTextLayoutCache.prefetch(items.subList(from,
+                Math.min(from + MAX_PREFETCHED_ROWS, count)), rowWidth, mThemer);
+    }
+
+    /**
+     * Makes the next update match rows by item ID &amp; content only. Rows
+     * that show equal items keep their views, even if the items belong
+     * to another menu. Used when switching between menus that share rows.
+     */
+    void keepSharedRowsOnNextUpdate() {
+        mKeepSharedRows = true;
+    }
+
+    /**
+     * Returns a hash of what the row for 'item' displays. A GROUP_HEADER's
+     * row also displays the state of its group.
+     */
+    private int getRowHash(SublimeBaseMenuItem item) {
+        int hash = item.getContentHash();
+
+        if (item.getItemType() == SublimeBaseMenuItem.ItemType.GROUP_HEADER) {
+            SublimeGroup group = mMenu.getGroup(item.getGroupId());
+
+            if (group != null) {
+                hash = 31 * hash + (group.isCollapsible() ? 1 : 0);
+                hash = 31 * hash + (group.isCollapsed() ? 1 : 0);
+                hash = 31 * hash + (group.isEnabled() ? 1 : 0);
+            }
+        }
+
+        return hash;
+    }
+
+    /**
+     * Returns the number of times rows have been bound, fully or
+     * partially. Used to measure how many binds an update costs.
+     *
+     * @return number of binds so far
+     */
+    int getBindCount() {
+        return mBindCount;
     }
 
     public View getHeaderView() {
@@ -192,8 +642,15 @@ public class SublimeMenuPresenter {
     public abstract class BaseHolder extends RecyclerView.ViewHolder
             implements Holders, View.OnClickListener {
 
+        // Position the row was bound at. Not updated when the row
+        // is only shifted - see getBoundData()
         protected int mPosition;
 
+        // Presenter this holder was last bound by. Holders can come from a
+        // RecycledViewPool shared with other presenters, so this isn't
+        // necessarily the presenter that created the holder.
+        protected SublimeMenuPresenter mPresenter;
+
         public BaseHolder(View itemView) {
             super(itemView);
             itemView.setOnClickListener(this);
@@ -201,7 +658,8 @@ public class SublimeMenuPresenter {
 
         @Override
         public void onClick(View v) {
-            mMenu.performItemAction(mAdapter.getItem(getAdapterPosition()));
+            mPresenter.mMenu.performItemAction(
+                    mPresenter.mAdapter.getItem(getAdapterPosition()));
         }
 
         @Override
@@ -209,8 +667,28 @@ public class SublimeMenuPresenter {
             mPosition = boundPosition;
         }
 
+        /**
+         * Updates the bound row to show the 'changedParts' of
+         * 'sublimeMenuItemDef' (SublimeMenu.Change.PAYLOAD_* flags)
+         * that have changed. Rows that can't be updated partially
+         * are bound afresh.
+         */
+        public void update(SublimeBaseMenuItem sublimeMenuItemDef, int boundPosition,
+                           int changedParts) {
+            initialize(sublimeMenuItemDef, boundPosition);
+        }
+
+        /**
+         * Returns the item this row shows, or 'null' if the row isn't
+         * bound or is being removed. Looked up by adapter position -
+         * rows that are only shifted by inserts &amp; removals above
+         * them aren't bound again, so their 'mPosition' is stale.
+         */
         public SublimeBaseMenuItem getBoundData() {
-            return mAdapter != null ? mAdapter.getItem(mPosition) : null;
+            int position = getAdapterPosition();
+
+            return mPresenter != null && position != RecyclerView.NO_POSITION ?
+                    mPresenter.mAdapter.getItem(position) : null;
         }
     }
 
@@ -258,10 +736,9 @@ public class SublimeMenuPresenter {
             SublimeSubheaderItemView itemSubHeader
                     = (SublimeSubheaderItemView) itemView;
             SublimeGroup group
-                    = SublimeMenuPresenter.this
-                    .mMenu.getGroup(sublimeMenuItemDef.getGroupId());
+                    = mPresenter.mMenu.getGroup(sublimeMenuItemDef.getGroupId());
             itemSubHeader.initialize(sublimeMenuItemDef, group,
-                    mThemer);
+                    mPresenter.mThemer);
         }
     }
 
@@ -275,7 +752,15 @@ public class SublimeMenuPresenter {
             super.initialize(sublimeMenuItemDef, boundPosition);
             SublimeTextItemView itemTextView
                     = (SublimeTextItemView) itemView;
-            itemTextView.initialize(sublimeMenuItemDef, mThemer);
+            itemTextView.initialize(sublimeMenuItemDef, mPresenter.mThemer);
+        }
+
+        @Override
+        public void update(SublimeBaseMenuItem sublimeMenuItemDef, int boundPosition,
+                           int changedParts) {
+            mPosition = boundPosition;
+            ((SublimeTextItemView) itemView).update(sublimeMenuItemDef,
+                    mPresenter.mThemer, changedParts);
         }
     }
 
@@ -290,7 +775,15 @@ public class SublimeMenuPresenter {
 
             SublimeCheckboxItemView itemCheckbox
                     = (SublimeCheckboxItemView) itemView;
-            itemCheckbox.initialize(sublimeMenuItemDef, mThemer);
+            itemCheckbox.initialize(sublimeMenuItemDef, mPresenter.mThemer);
+        }
+
+        @Override
+        public void update(SublimeBaseMenuItem sublimeMenuItemDef, int boundPosition,
+                           int changedParts) {
+            mPosition = boundPosition;
+            ((SublimeCheckboxItemView) itemView).update(sublimeMenuItemDef,
+                    mPresenter.mThemer, changedParts);
         }
     }
 
@@ -305,7 +798,15 @@ public class SublimeMenuPresenter {
 
             SublimeSwitchItemView itemSwitch
                     = (SublimeSwitchItemView) itemView;
-            itemSwitch.initialize(sublimeMenuItemDef, mThemer);
+            itemSwitch.initialize(sublimeMenuItemDef, mPresenter.mThemer);
+        }
+
+        @Override
+        public void update(SublimeBaseMenuItem sublimeMenuItemDef, int boundPosition,
+                           int changedParts) {
+            mPosition = boundPosition;
+            ((SublimeSwitchItemView) itemView).update(sublimeMenuItemDef,
+                    mPresenter.mThemer, changedParts);
         }
 
         @Override
@@ -324,7 +825,40 @@ public class SublimeMenuPresenter {
             super.initialize(sublimeMenuItemDef, boundPosition);
             SublimeTextWithBadgeItemView itemBadge
                     = (SublimeTextWithBadgeItemView) itemView;
-            itemBadge.initialize(sublimeMenuItemDef, mThemer);
+            itemBadge.initialize(sublimeMenuItemDef, mPresenter.mThemer);
+        }
+
+        @Override
+        public void update(SublimeBaseMenuItem sublimeMenuItemDef, int boundPosition,
+                           int changedParts) {
+            mPosition = boundPosition;
+            ((SublimeTextWithBadgeItemView) itemView).update(sublimeMenuItemDef,
+                    mPresenter.mThemer, changedParts);
+        }
+    }
+
+    private class MenuViewFlatHolder extends BaseHolder {
+        public MenuViewFlatHolder(View itemView) {
+            super(itemView);
+        }
+
+        @Override
+        public void initialize(SublimeBaseMenuItem sublimeMenuItemDef, int boundPosition) {
+            super.initialize(sublimeMenuItemDef, boundPosition);
+            SublimeFlatItemView itemFlat
+                    = (SublimeFlatItemView) itemView;
+            itemFlat.setTextLayoutCache(mPresenter.mTextLayoutCache);
+            itemFlat.initialize(sublimeMenuItemDef, mPresenter.mThemer);
+        }
+
+        @Override
+        public void update(SublimeBaseMenuItem sublimeMenuItemDef, int boundPosition,
+                           int changedParts) {
+            mPosition = boundPosition;
+            SublimeFlatItemView itemFlat
+                    = (SublimeFlatItemView) itemView;
+            itemFlat.setTextLayoutCache(mPresenter.mTextLayoutCache);
+            itemFlat.update(sublimeMenuItemDef, mPresenter.mThemer, changedParts);
         }
     }
 
@@ -336,10 +870,12 @@ public class SublimeMenuPresenter {
         private static final int VIEW_TYPE_CHECKBOX = VIEW_TYPE_TEXT + 1;
         private static final int VIEW_TYPE_SWITCH = VIEW_TYPE_CHECKBOX + 1;
         private static final int VIEW_TYPE_BADGE = VIEW_TYPE_SWITCH + 1;
-        private final ArrayList<SublimeBaseMenuItem> mItems = new ArrayList<>();
+        private static final int VIEW_TYPE_FLAT = VIEW_TYPE_BADGE + 1;
+        private static final int VIEW_TYPE_COUNT = VIEW_TYPE_FLAT + 1;
+        private ArrayList<SublimeBaseMenuItem> mItems;
 
         MenuRecyclerAdapter() {
-            this.mItems.addAll(SublimeMenuPresenter.this.mMenu.getAdapterData());
+            mItems = new ArrayList<>(SublimeMenuPresenter.this.mMenu.getAdapterData());
         }
 
         @Override
@@ -372,6 +908,10 @@ public class SublimeMenuPresenter {
                     return new MenuViewTextWithBadgeHolder(SublimeMenuPresenter
                             .this.mLayoutInflater.inflate(
                             R.layout.sublime_text_with_badge_item_view, viewGroup, false));
+                case VIEW_TYPE_FLAT:
+                    return new MenuViewFlatHolder(SublimeMenuPresenter.this
+                            .mLayoutInflater.inflate(
+                                    R.layout.sublime_flat_item_view, viewGroup, false));
                 default:
                     /* VIEW_TYPE_TEXT */
                     return new MenuViewTextHolder(SublimeMenuPresenter.this
@@ -382,13 +922,46 @@ public class SublimeMenuPresenter {
 
         @Override
         public void onBindViewHolder(BaseHolder menuViewHolder, int position) {
-            menuViewHolder.initialize(getItem(position), position);
+            SublimeBaseMenuItem item = getItem(position);
+            item.setBoundContentHash(getRowHash(item));
+            mBindCount++;
+            menuViewHolder.mPresenter = SublimeMenuPresenter.this;
+            menuViewHolder.initialize(item, position);
+        }
+
+        @Override
+        public void onBindViewHolder(BaseHolder menuViewHolder, int position,
+                                     List<Object> payloads) {
+            if (payloads.isEmpty()) {
+                onBindViewHolder(menuViewHolder, position);
+                return;
+            }
+
+            // Payloads of all changes since the row was last bound
+            int changedParts = 0;
+
+            for (int i = 0, size = payloads.size(); i < size; i++) {
+                changedParts |= (Integer) payloads.get(i);
+            }
+
+            SublimeBaseMenuItem item = getItem(position);
+            item.setBoundContentHash(getRowHash(item));
+            mBindCount++;
+            menuViewHolder.mPresenter = SublimeMenuPresenter.this;
+            menuViewHolder.update(item, position, changedParts);
         }
 
         public SublimeBaseMenuItem getItem(int position) {
             return mItems.get(position);
         }
 
+        /**
+         * Returns the rows in [from, to).
+         */
+        List<SublimeBaseMenuItem> getItems(int from, int to) {
+            return mItems.subList(from, to);
+        }
+
         @Override
         public int getItemViewType(int position) {
             return resolveItemViewType(getItem(position));
@@ -396,7 +969,10 @@ public class SublimeMenuPresenter {
 
         @Override
         public long getItemId(int position) {
-            return (long) position;
+            SublimeBaseMenuItem item = getItem(position);
+
+            // HEADER_STUB's ID is NO_ITEM_ID, which equals RecyclerView.NO_ID
+            return item == SublimeMenu.HEADER_STUB ? HEADER_STABLE_ID : item.getItemId();
         }
 
         private int resolveItemViewType(SublimeBaseMenuItem item) {
@@ -412,15 +988,230 @@ public class SublimeMenuPresenter {
                 case SWITCH:
                     return VIEW_TYPE_SWITCH;
                 case BADGE:
-                    return VIEW_TYPE_BADGE;
+                    // Flat rows have no progress bar
+                    return mUsesFlatRows && !item.providesValueAsync() ?
+                            VIEW_TYPE_FLAT : VIEW_TYPE_BADGE;
+                default:
+                    return mUsesFlatRows ? VIEW_TYPE_FLAT : VIEW_TYPE_TEXT;
+            }
+        }
+
+        /**
+         * Replaces all rows with 'items'. The list is used as it is.
+         */
+        void setItems(ArrayList<SublimeBaseMenuItem> items) {
+            mItems = items;
+        }
+
+        /**
+         * Applies 'change' to the rows as a positional edit. Changed rows
+         * keep their items, so content changes need no work at all.
+         *
+         * @param change    change to apply
+         * @param freshData rows after the change
+         * @return 'false' if the rows had to be reset to 'freshData' - the
+         * adapter has been notified of that, 'change' mustn't be
+         */
+        boolean applyChange(SublimeMenu.Change change, List<SublimeBaseMenuItem> freshData) {
+            if (change.getChangeType() == SublimeMenu.Change.ChangeType.INVALIDATE_ENTIRE_MENU) {
+                mItems = new ArrayList<>(freshData);
+                return true;
+            }
+
+            boolean inserted = editRows(change);
+
+            if (!checkInSync(freshData)) {
+                return false;
+            }
+
+            if (inserted) {
+                // Only the inserted rows need to be looked up
+                int from = change.getAffectedPosition();
+                int to = from + Math.max(change.getNumberOfAffectedItems(), 1);
+
+                for (int i = from; i < to; i++) {
+                    mItems.set(i, freshData.get(i));
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Applies 'changes' to the rows as positional edits. Inserted rows
+         * are taken from 'freshData' once all changes have been applied.
+         *
+         * @param changes   changes in the order they were made
+         * @param freshData rows after all changes
+         * @return 'false' if the rows had to be reset to 'freshData' - the
+         * adapter has been notified of that, 'changes' mustn't be
+         */
+        boolean applyChanges(List<SublimeMenu.Change> changes,
+                          List<SublimeBaseMenuItem> freshData) {
+            // [start, end) of the rows inserted so far, at their current
+            // positions - only these need to be looked up afterwards
+            ArrayList<int[]> insertedRanges = new ArrayList<>();
+
+            for (int i = 0, size = changes.size(); i < size; i++) {
+                SublimeMenu.Change change = changes.get(i);
+                int position = change.getAffectedPosition();
+
+                switch (change.getChangeType()) {
+                    case ITEM_INSERTED:
+                        shiftForInsert(insertedRanges, position, 1, true);
+                        break;
+                    case RANGE_INSERTED:
+                        shiftForInsert(insertedRanges, position,
+                                change.getNumberOfAffectedItems(), true);
+                        break;
+                    case ITEM_REMOVED:
+                        shiftForRemove(insertedRanges, position, 1);
+                        break;
+                    case RANGE_REMOVED:
+                        shiftForRemove(insertedRanges, position,
+                                change.getNumberOfAffectedItems());
+                        break;
+                    case ITEM_MOVED:
+                        boolean movedInserted = shiftForRemove(insertedRanges,
+                                change.getMovedFromPosition(), 1);
+                        shiftForInsert(insertedRanges, change.getMovedToPosition(),
+                                1, movedInserted);
+                        break;
+                    default:
+                        /* ITEM_CHANGED, RANGE_CHANGED */
+                        break;
+                }
+
+                editRows(change);
+            }
+
+            if (!checkInSync(freshData)) {
+                return false;
+            }
+
+            for (int i = 0, size = insertedRanges.size(); i < size; i++) {
+                int[] range = insertedRanges.get(i);
+
+                for (int j = range[0]; j < range[1]; j++) {
+                    mItems.set(j, freshData.get(j));
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Moves the ranges in 'ranges' past 'count' rows inserted at
+         * 'position', splitting a range the rows land in. If 'addRange'
+         * is 'true', the inserted rows are added as a range of their own.
+         */
+        private void shiftForInsert(ArrayList<int[]> ranges, int position,
+                                    int count, boolean addRange) {
+            for (int i = 0, size = ranges.size(); i < size; i++) {
+                int[] range = ranges.get(i);
+
+                if (range[0] >= position) {
+                    range[0] += count;
+                    range[1] += count;
+                } else if (range[1] > position) {
+                    ranges.add(new int[]{position + count, range[1] + count});
+                    range[1] = position;
+                }
+            }
+
+            if (addRange) {
+                ranges.add(new int[]{position, position + count});
+            }
+        }
+
+        /**
+         * Drops 'count' rows removed at 'position' from the ranges in
+         * 'ranges' &amp; moves the ranges after them back.
+         *
+         * @return 'true' if the row at 'position' was in one of the ranges
+         */
+        private boolean shiftForRemove(ArrayList<int[]> ranges, int position, int count) {
+            boolean removedFromRange = false;
+
+            for (int i = ranges.size() - 1; i >= 0; i--) {
+                int[] range = ranges.get(i);
+
+                if (range[0] <= position && position < range[1]) {
+                    removedFromRange = true;
+                }
+
+                range[0] = positionAfterRemove(range[0], position, count);
+                range[1] = positionAfterRemove(range[1], position, count);
+
+                if (range[0] == range[1]) {
+                    ranges.remove(i);
+                }
+            }
+
+            return removedFromRange;
+        }
+
+        private int positionAfterRemove(int rowPosition, int position, int count) {
+            if (rowPosition <= position) {
+                return rowPosition;
+            }
+
+            return rowPosition >= position + count ? rowPosition - count : position;
+        }
+
+        /**
+         * Moves rows around as described by 'change'. Inserted
+         * rows are left empty.
+         *
+         * @return 'true' if rows were inserted
+         */
+        private boolean editRows(SublimeMenu.Change change) {
+            int position = change.getAffectedPosition();
+
+            switch (change.getChangeType()) {
+                case ITEM_INSERTED:
+                    mItems.add(position, null);
+                    return true;
+                case RANGE_INSERTED:
+                    mItems.addAll(position, Collections.<SublimeBaseMenuItem>nCopies(
+                            change.getNumberOfAffectedItems(), null));
+                    return true;
+                case ITEM_REMOVED:
+                    mItems.remove(position);
+                    break;
+                case RANGE_REMOVED:
+                    mItems.subList(position,
+                            position + change.getNumberOfAffectedItems()).clear();
+                    break;
+                case ITEM_MOVED:
+                    mItems.add(change.getMovedToPosition(),
+                            mItems.remove(change.getMovedFromPosition()));
+                    break;
                 default:
-                    return VIEW_TYPE_TEXT;
+                    /* ITEM_CHANGED, RANGE_CHANGED */
+                    break;
             }
+
+            return false;
         }
 
-        public void refreshData(List<SublimeBaseMenuItem> freshData) {
-            mItems.clear();
-            mItems.addAll(freshData);
+        /**
+         * Resets the rows to 'freshData' if the edits didn't lead to
+         * the same number of rows. RecyclerView hasn't been notified of
+         * the edits yet - it's told the data set changed instead.
+         *
+         * @return 'true' if the rows are in sync
+         */
+        private boolean checkInSync(List<SublimeBaseMenuItem> freshData) {
+            if (mItems.size() == freshData.size()) {
+                return true;
+            }
+
+            Log.e(TAG, "Adapter data out of sync after applying changes: "
+                    + mItems.size() + " rows vs " + freshData.size());
+            mItems = new ArrayList<>(freshData);
+            notifyDataSetChanged();
+            return false;
         }
     }
 }
\ No newline at end of file
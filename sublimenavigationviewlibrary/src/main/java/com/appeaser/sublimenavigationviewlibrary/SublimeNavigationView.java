@@ -29,6 +29,7 @@ import android.support.annotation.LayoutRes;
 import android.support.annotation.MenuRes;
 import android.support.annotation.NonNull;
 import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.RecyclerView;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.Log;
@@ -363,6 +364,10 @@ public class SublimeNavigationView extends ScrimInsetsFrameLayout {
 
                 mMenu = new SublimeMenu(menuResId);
                 inflateMenu(menuResId);
+            } else {
+                // Created in code - a menu is set later, using
+                // switchMenuTo(...)
+                mMenu = new SublimeMenu(-1);
             }
 
             mMenu.setCallback(new SublimeMenu.Callback() {
@@ -429,6 +434,24 @@ public class SublimeNavigationView extends ScrimInsetsFrameLayout {
      *                {@link SublimeNavigationView#getMenu()}.
      */
     public void switchMenuTo(@NonNull SublimeMenu newMenu) {
+        switchMenuTo(newMenu, false);
+    }
+
+    /**
+     * Provides a mechanism for switching between any number of Menus.
+     * With 'keepSharedRows' set, rows that are the same in both menus
+     * (same item ID &amp; content) keep their views - only the rows that
+     * differ are inserted, removed, moved or changed, with animations.
+     * Useful for switching between menus that share most of their rows,
+     * such as per-account menus.
+     *
+     * @param newMenu        Typically, this would
+     *                       have been returned from a former call to
+     *                       {@link SublimeNavigationView#getMenu()}.
+     * @param keepSharedRows 'true' to keep the rows both menus share,
+     *                       'false' to bind all rows afresh
+     */
+    public void switchMenuTo(@NonNull SublimeMenu newMenu, boolean keepSharedRows) {
         // Todo: pending removal of this NULL check
         if (newMenu == null) {
             Log.e(TAG, "Could not switch to new menu: passed menu was 'null'.");
@@ -437,6 +460,10 @@ public class SublimeNavigationView extends ScrimInsetsFrameLayout {
 
         mMenu = newMenu;
 
+        if (keepSharedRows) {
+            mPresenter.keepSharedRowsOnNextUpdate();
+        }
+
         mMenu.setCallback(new SublimeMenu.Callback() {
             public boolean onMenuItemSelected(SublimeMenu menu, SublimeBaseMenuItem item,
                                               OnNavigationMenuEventListener.Event event) {
@@ -547,6 +574,39 @@ public class SublimeNavigationView extends ScrimInsetsFrameLayout {
         return mPresenter.inflateHeaderView(res);
     }
 
+    /**
+     * Sets the pool this view's menu recycles rows into. Rows can be shared
+     * with other SublimeNavigationViews in the same Activity by passing
+     * them the same pool.
+     *
+     * @param pool pool created with {@link SublimeMenuPresenter#createRecycledViewPool()}
+     */
+    public void setRecycledViewPool(@NonNull RecyclerView.RecycledViewPool pool) {
+        mPresenter.setRecycledViewPool(pool);
+    }
+
+    /**
+     * Inflates menu rows while the main thread is idle, so that opening
+     * the drawer for the first time only binds rows. Call this once the
+     * menu is set up, e.g. at the end of 'onCreate()'.
+     *
+     * @param maxRowsPerType maximum number of rows to inflate per row type,
+     *                       typically the number of rows that fit on screen
+     */
+    public void preInflateRows(int maxRowsPerType) {
+        mPresenter.preInflateRows(maxRowsPerType);
+    }
+
+    /**
+     * Sets whether Text &amp; Text with Badge items are drawn by a single
+     * view each. See {@link SublimeMenuPresenter#setUsesFlatRows(boolean)}.
+     *
+     * @param usesFlatRows 'true' to show flat rows
+     */
+    public void setUsesFlatRows(boolean usesFlatRows) {
+        mPresenter.setUsesFlatRows(usesFlatRows);
+    }
+
     /**
      * Sets the given {@link View} as the header this Menu.
      *
@@ -20,7 +20,6 @@ import android.content.Context;
 import android.content.res.ColorStateList;
 import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
-import android.support.v4.graphics.drawable.DrawableCompat;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -36,6 +35,10 @@ public class SublimeSubheaderItemView extends SublimeBaseItemView {
     ImageView mExpandCollapse;
     Drawable mExpandDrawable, mCollapseDrawable;
 
+    // Themer drawables the tinted ones above are made from
+    private Drawable mExpandSource, mCollapseSource;
+    private boolean mCollapsed;
+
     public SublimeSubheaderItemView(Context context) {
         this(context, null);
     }
@@ -56,15 +59,25 @@ public class SublimeSubheaderItemView extends SublimeBaseItemView {
         mExpandCollapse = (ImageView) findViewById(R.id.expand_collapse);
     }
 
+    /**
+     * Takes tinted expand &amp; collapse drawables from the themer's
+     * icon cache. Drawables this row already shows are kept.
+     */
     private void initializeDrawables(SublimeThemer themer) {
-        mExpandDrawable = themer.getGroupExpandDrawable();
-        mCollapseDrawable = themer.getGroupCollapseDrawable();
+        mExpandSource = themer.getGroupExpandDrawableSource();
+        mCollapseSource = themer.getGroupCollapseDrawableSource();
+        obtainDrawables(mIconTintList);
+    }
+
+    private void obtainDrawables(ColorStateList tintList) {
+        mExpandDrawable = mIconCache.obtain(mExpandDrawable,
+                mExpandSource, tintList, mIconSize);
+        mCollapseDrawable = mIconCache.obtain(mCollapseDrawable,
+                mCollapseSource, tintList, mIconSize);
     }
 
     public void initialize(SublimeBaseMenuItem itemData, SublimeGroup groupData,
                            SublimeThemer themer) {
-        initializeDrawables(themer);
-
         // Subheader Item styling
         TextViewStyleProfile subheaderItemStyleProfile = themer.getSubheaderStyleProfile();
         setSubheaderItemTextColor(subheaderItemStyleProfile.getTextColor());
@@ -86,21 +99,22 @@ public class SublimeSubheaderItemView extends SublimeBaseItemView {
         }
 
         super.initialize(itemData, themer);
+        initializeDrawables(themer);
         setExpandCollapseIconVisibility(groupData.isCollapsible());
         setExpandCollapseIconState(groupData.isCollapsed());
     }
 
     @Override
     public void setIconTintList(ColorStateList tintList) {
-        mExpandDrawable = DrawableCompat.wrap(mExpandDrawable
-                .getConstantState().newDrawable()).mutate();
-        DrawableCompat.setTintList(mExpandDrawable, tintList);
-
-        mCollapseDrawable = DrawableCompat.wrap(mCollapseDrawable
-                .getConstantState().newDrawable()).mutate();
-        DrawableCompat.setTintList(mCollapseDrawable, tintList);
-
+        // Binding passes the themer's tint list, which the
+        // drawables from initializeDrawables(...) already have
+        boolean tintChanged = tintList != mIconTintList && mExpandSource != null;
         super.setIconTintList(tintList);
+
+        if (tintChanged) {
+            obtainDrawables(tintList);
+            setExpandCollapseIconState(mCollapsed);
+        }
     }
 
     @Override
@@ -162,6 +176,7 @@ public class SublimeSubheaderItemView extends SublimeBaseItemView {
     }
 
     private void setExpandCollapseIconState(boolean collapsed) {
+        mCollapsed = collapsed;
         mExpandCollapse.setImageDrawable(
                 collapsed ? mExpandDrawable : mCollapseDrawable
         );
@@ -20,7 +20,6 @@ import android.content.Context;
 import android.content.res.ColorStateList;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
-import android.support.v4.content.ContextCompat;
 import android.support.v4.graphics.drawable.DrawableCompat;
 import android.support.v7.widget.SwitchCompat;
 import android.util.AttributeSet;
@@ -35,6 +34,10 @@ public class SublimeSwitchItemView extends SublimeBaseItemView {
 
     private SwitchCompat mSwitch;
 
+    // Themer & tint list the switch drawables were set up with
+    private SublimeThemer mSwitchDrawablesThemer;
+    private ColorStateList mSwitchDrawablesTintList;
+
     public SublimeSwitchItemView(Context context) {
         this(context, null);
     }
@@ -57,10 +60,28 @@ public class SublimeSwitchItemView extends SublimeBaseItemView {
 
     @Override
     public void initialize(SublimeBaseMenuItem itemData, SublimeThemer themer) {
-        setCheckableItemTintList(themer.getCheckableItemTintList());
+        applySwitchDrawables(themer);
         super.initialize(itemData, themer);
     }
 
+    /**
+     * Sets copies of the themer's track &amp; thumb, unless this row
+     * already has them for the themer's current tint list.
+     */
+    private void applySwitchDrawables(SublimeThemer themer) {
+        ColorStateList checkableItemTintList = themer.getCheckableItemTintList();
+
+        if (themer == mSwitchDrawablesThemer
+                && checkableItemTintList == mSwitchDrawablesTintList) {
+            return;
+        }
+
+        setSwitchDrawables(themer.newSwitchTrackDrawable(), themer.newSwitchThumbDrawable(),
+                checkableItemTintList);
+        mSwitchDrawablesThemer = themer;
+        mSwitchDrawablesTintList = checkableItemTintList;
+    }
+
     @Override
     public void setItemTextColor(ColorStateList textColor) {
         super.setItemTextColor(textColor);
@@ -80,32 +101,32 @@ public class SublimeSwitchItemView extends SublimeBaseItemView {
     }
 
     public void setCheckableItemTintList(ColorStateList checkableItemTintList) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            // Covers android M (23)
-            Drawable dTrack = getResources().getDrawable(R.drawable.snv_switch_track_material, getContext().getTheme());
-            Drawable dThumb = getResources().getDrawable(R.drawable.snv_switch_thumb_material_anim, getContext().getTheme());
-
-            if (dTrack != null && dThumb != null) {
-                DrawableCompat.setTintList(dTrack, checkableItemTintList);
-                DrawableCompat.setTintList(dThumb, checkableItemTintList);
-                mSwitch.setTrackDrawable(dTrack);
-                mSwitch.setThumbDrawable(dThumb);
-            }
-        } else {
-            Drawable dTrack = ContextCompat.getDrawable(getContext(), R.drawable.snv_switch_track);
-            Drawable dThumb = ContextCompat.getDrawable(getContext(), R.drawable.switch_thumb_pre_lollipop);
+        setSwitchDrawables(SublimeThemer.loadSwitchTrackDrawable(getContext()),
+                SublimeThemer.loadSwitchThumbDrawable(getContext()), checkableItemTintList);
+    }
 
-            if (dTrack != null && dThumb != null) {
-                dTrack = DrawableCompat.wrap(dTrack);
-                DrawableCompat.setTintList(dTrack, checkableItemTintList);
-                dTrack.setAlpha(85 /* 0.3f */);
+    private void setSwitchDrawables(Drawable dTrack, Drawable dThumb,
+                                    ColorStateList checkableItemTintList) {
+        mSwitchDrawablesThemer = null;
+        mSwitchDrawablesTintList = null;
 
-                dThumb = DrawableCompat.wrap(dThumb);
-                DrawableCompat.setTintList(dThumb, checkableItemTintList);
+        if (dTrack == null || dThumb == null) {
+            return;
+        }
 
-                mSwitch.setTrackDrawable(dTrack);
-                mSwitch.setThumbDrawable(dThumb);
-            }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            DrawableCompat.setTintList(dTrack, checkableItemTintList);
+            DrawableCompat.setTintList(dThumb, checkableItemTintList);
+        } else {
+            dTrack = DrawableCompat.wrap(dTrack);
+            DrawableCompat.setTintList(dTrack, checkableItemTintList);
+            dTrack.setAlpha(85 /* 0.3f */);
+
+            dThumb = DrawableCompat.wrap(dThumb);
+            DrawableCompat.setTintList(dThumb, checkableItemTintList);
         }
+
+        mSwitch.setTrackDrawable(dTrack);
+        mSwitch.setThumbDrawable(dThumb);
     }
 }
\ No newline at end of file
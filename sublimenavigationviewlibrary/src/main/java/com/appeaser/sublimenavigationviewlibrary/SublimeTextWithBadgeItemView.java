@@ -67,6 +67,19 @@ public class SublimeTextWithBadgeItemView extends SublimeBaseItemView {
             setBadgeTypefaceStyle(badgeStyleProfile.getTypefaceStyle());
         }
 
+        applyBadge(itemData);
+    }
+
+    @Override
+    public void update(SublimeBaseMenuItem itemData, SublimeThemer themer, int changedParts) {
+        super.update(itemData, themer, changedParts);
+
+        if ((changedParts & SublimeMenu.Change.PAYLOAD_BADGE) != 0) {
+            applyBadge(itemData);
+        }
+    }
+
+    private void applyBadge(SublimeBaseMenuItem itemData) {
         if (itemData.providesValueAsync()) {
             mBadgeView.setVisibility(GONE);
             mProgress.setVisibility(VISIBLE);
@@ -72,6 +72,7 @@ public class SublimeTextWithBadgeMenuItem extends SublimeBaseMenuItem {
      */
     public SublimeTextWithBadgeMenuItem setBadgeText(CharSequence badgeText) {
         mBadgeText = badgeText;
+        markChanged(SublimeMenu.Change.PAYLOAD_BADGE);
         attemptItemUpdate();
 
         return this;
@@ -85,4 +86,9 @@ public class SublimeTextWithBadgeMenuItem extends SublimeBaseMenuItem {
     public CharSequence getBadgeText() {
         return mBadgeText;
     }
+
+    @Override
+    int getContentHash() {
+        return 31 * super.getContentHash() + hashOf(mBadgeText);
+    }
 }
@@ -16,6 +16,7 @@
 
 package com.appeaser.sublimenavigationviewlibrary;
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.ColorStateList;
 import android.content.res.TypedArray;
@@ -24,7 +25,9 @@ import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.LayerDrawable;
 import android.graphics.drawable.StateListDrawable;
+import android.os.Build;
 import android.support.annotation.NonNull;
+import android.support.v4.content.ContextCompat;
 import android.support.v4.content.res.ResourcesCompat;
 import android.util.Log;
 import android.util.TypedValue;
@@ -50,6 +53,8 @@ public class SublimeThemer {
     private DefaultTheme mDefaultTheme;
     private float mElevation;
     private Drawable mGroupExpandDrawable, mGroupCollapseDrawable;
+    private Drawable mSwitchTrackDrawable, mSwitchThumbDrawable;
+    private final TintedIconCache mIconCache = new TintedIconCache();
 
     private TextViewStyleProfile mItemStyleProfile, mItemHintStyleProfile,
             mSubheaderStyleProfile, mSubheaderHintStyleProfile, mBadgeStyleProfile;
@@ -69,6 +74,8 @@ public class SublimeThemer {
         }
 
         mIconTintList = iconTintList;
+        // Icons tinted with the previous list won't be asked for again
+        mIconCache.clear();
         return this;
     }
 
@@ -194,33 +201,116 @@ public class SublimeThemer {
     }
 
     public Drawable getGroupExpandDrawable() {
+        // Return a new drawable since this method will be
+        // called multiple times
+        return getGroupExpandDrawableSource().getConstantState().newDrawable();
+    }
+
+    public Drawable getGroupCollapseDrawable() {
+        // Return a new drawable since this method will be
+        // called multiple times
+        return getGroupCollapseDrawableSource().getConstantState().newDrawable();
+    }
+
+    /**
+     * Returns the drawable {@link #getGroupExpandDrawable()} makes
+     * copies of. Subheader rows take tinted copies from
+     * {@link #getIconCache()} instead.
+     */
+    Drawable getGroupExpandDrawableSource() {
         if (mGroupExpandDrawable == null) {
             mGroupExpandDrawable = ResourcesCompat.getDrawable(mContext.getResources(),
                     R.drawable.snv_expand, mContext.getTheme());
         }
 
-        // Return a new drawable since this method will be
-        // called multiple times
-        return mGroupExpandDrawable.getConstantState().newDrawable();
+        return mGroupExpandDrawable;
     }
 
-    public Drawable getGroupCollapseDrawable() {
+    /**
+     * Returns the drawable {@link #getGroupCollapseDrawable()} makes
+     * copies of. Subheader rows take tinted copies from
+     * {@link #getIconCache()} instead.
+     */
+    Drawable getGroupCollapseDrawableSource() {
         if (mGroupCollapseDrawable == null) {
             mGroupCollapseDrawable = ResourcesCompat.getDrawable(mContext.getResources(),
                     R.drawable.snv_collapse, mContext.getTheme());
         }
 
-        // Return a new drawable since this method will be
-        // called multiple times
-        return mGroupCollapseDrawable.getConstantState().newDrawable();
+        return mGroupCollapseDrawable;
+    }
+
+    /**
+     * Returns an untinted copy of the switch track. The resource
+     * is only loaded once per themer.
+     */
+    Drawable newSwitchTrackDrawable() {
+        if (mSwitchTrackDrawable == null) {
+            mSwitchTrackDrawable = loadSwitchTrackDrawable(mContext);
+        }
+
+        return copyOf(mSwitchTrackDrawable);
+    }
+
+    /**
+     * Returns an untinted copy of the switch thumb. The resource
+     * is only loaded once per themer.
+     */
+    Drawable newSwitchThumbDrawable() {
+        if (mSwitchThumbDrawable == null) {
+            mSwitchThumbDrawable = loadSwitchThumbDrawable(mContext);
+        }
+
+        return copyOf(mSwitchThumbDrawable);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    static Drawable loadSwitchTrackDrawable(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            // Covers android M (23)
+            return context.getResources().getDrawable(R.drawable.snv_switch_track_material,
+                    context.getTheme());
+        }
+
+        return ContextCompat.getDrawable(context, R.drawable.snv_switch_track);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    static Drawable loadSwitchThumbDrawable(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            // Covers android M (23)
+            return context.getResources().getDrawable(R.drawable.snv_switch_thumb_material_anim,
+                    context.getTheme());
+        }
+
+        return ContextCompat.getDrawable(context, R.drawable.switch_thumb_pre_lollipop);
+    }
+
+    private static Drawable copyOf(Drawable drawable) {
+        if (drawable == null) {
+            return null;
+        }
+
+        // Mutate, so that tinting a row's copy leaves
+        // the other copies alone
+        return drawable.getConstantState().newDrawable().mutate();
     }
 
     public Drawable getItemBackground() {
+        return getItemBackgroundSource().getConstantState().newDrawable();
+    }
+
+    /**
+     * Returns the background that {@link #getItemBackground()} makes
+     * copies of. Rows keep their copy for as long as this doesn't
+     * change, instead of asking for a new one on every bind.
+     */
+    Drawable getItemBackgroundSource() {
         if (mItemBackground == null) {
             setDefaultItemBackground();
         }
 
-        return mItemBackground.getConstantState().newDrawable();
+        return mItemBackground;
     }
 
     public Drawable getDrawerBackground() {
@@ -271,6 +361,14 @@ public class SublimeThemer {
         return mBadgeStyleProfile;
     }
 
+    /**
+     * Prepared, tinted menu item icons. Rows bound with this
+     * themer share them - see {@link TintedIconCache}.
+     */
+    TintedIconCache getIconCache() {
+        return mIconCache;
+    }
+
     public DefaultTheme getDefaultTheme() {
         return mDefaultTheme;
     }
@@ -0,0 +1,517 @@
+/*
+ * Copyright 2015 Vikram Kakkar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.appeaser.sublimenavigationviewlibrary;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Typeface;
+import android.os.AsyncTask;
+import android.text.BoringLayout;
+import android.text.Layout;
+import android.text.Spanned;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.LruCache;
+import android.util.Pair;
+import android.util.TypedValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Single-line text layouts for flat rows ({@link SublimeFlatItemView}),
+ * keyed by text, text style &amp; width. When the menu is built or
+ * changes, layouts for the rows around the visible ones are built on
+ * a worker thread - see {@link #prefetch(List, int, SublimeThemer)} - so
+ * that binding a flat row mostly attaches layouts that are measured
+ * already.
+ * <p/>
+ * A layout draws with the paint it was built with - rows set the text
+ * color on it right before drawing. Layouts built on the worker thread
+ * get paints of their own &amp; are handed over to the main thread once
+ * the worker is done with them. Otherwise, the cache is only used on
+ * the main thread.
+ */
+final class TextLayoutCache {
+    private static final String TAG = TextLayoutCache.class.getSimpleName();
+
+    // Width passed to lay out text at the width it needs - used for badges
+    static final int NATURAL_WIDTH = -1;
+
+    // Text roles in a row
+    static final int TITLE = 0;
+    static final int HINT = 1;
+    static final int BADGE = 2;
+    private static final int ROLE_COUNT = BADGE + 1;
+
+    private static final int MAX_LAYOUTS = 400;
+
+    // Must be sorted - read by obtainStyledAttributes(...)
+    private static final int[] TEXT_APPEARANCE_ATTRS = {
+            android.R.attr.textSize,
+            android.R.attr.fontFamily
+    };
+
+    private final LruCache<Key, Layout> mLayouts = new LruCache<>(MAX_LAYOUTS);
+
+    // Paints of the layouts built on the main thread, by style
+    private final HashMap<Style, TextPaint> mPaints = new HashMap<>();
+
+    // Text size & typeface set by the text appearances, by role
+    private final float[] mTextSizes = new float[ROLE_COUNT];
+    private final Typeface[] mAppearanceTypefaces = new Typeface[ROLE_COUNT];
+
+    // Style last returned by getStyle(...) for each role & what it was made from
+    private final Style[] mStyles = new Style[ROLE_COUNT];
+    private final TextViewStyleProfile[] mStyleProfiles = new TextViewStyleProfile[ROLE_COUNT];
+    private final Typeface[] mProfileTypefaces = new Typeface[ROLE_COUNT];
+    private final int[] mProfileTypefaceStyles = new int[ROLE_COUNT];
+
+    // Row geometry - see sublime_flat_item_view.xml
+    private final int mIconSize, mIconPadding, mBadgeMinWidth, mRowPadding;
+
+    TextLayoutCache(Context context) {
+        mIconSize = context.getResources().getDimensionPixelSize(R.dimen.snv_navigation_icon_size);
+        mIconPadding = context.getResources()
+                .getDimensionPixelSize(R.dimen.snv_navigation_icon_padding);
+        mBadgeMinWidth = context.getResources()
+                .getDimensionPixelSize(R.dimen.snv_navigation_badge_min_width);
+        mRowPadding = resolveDimension(context, R.attr.listPreferredItemPaddingLeft)
+                + resolveDimension(context, R.attr.listPreferredItemPaddingRight);
+
+        readTextAppearance(context, TITLE,
+                R.attr.snvItemTextAppearance, R.style.SnvDefaultItemTextAppearance);
+        readTextAppearance(context, HINT,
+                R.attr.snvHintTextAppearance, R.style.SnvDefaultHintTextAppearance);
+        readTextAppearance(context, BADGE,
+                R.attr.snvBadgeTextAppearance, R.style.SnvDefaultBadgeTextAppearance);
+    }
+
+    private static int resolveDimension(Context context, int attr) {
+        TypedValue value = new TypedValue();
+
+        if (context.getTheme().resolveAttribute(attr, value, true)) {
+            return TypedValue.complexToDimensionPixelSize(value.data,
+                    context.getResources().getDisplayMetrics());
+        }
+
+        return 0;
+    }
+
+    /**
+     * Reads the text size &amp; font family of the text appearance set for
+     * 'appearanceAttr' in the theme. Values the theme's appearance doesn't
+     * set are taken from 'defaultAppearance', as {@link StateAwareTextView}
+     * does.
+     */
+    private void readTextAppearance(Context context, int role,
+                                    int appearanceAttr, int defaultAppearance) {
+        readTextAppearance(context, role, defaultAppearance);
+
+        TypedValue value = new TypedValue();
+        if (context.getTheme().resolveAttribute(appearanceAttr, value, true)
+                && value.resourceId != 0) {
+            readTextAppearance(context, role, value.resourceId);
+        }
+    }
+
+    private void readTextAppearance(Context context, int role, int appearance) {
+        TypedArray a = context.obtainStyledAttributes(appearance, TEXT_APPEARANCE_ATTRS);
+
+        try {
+            if (a.hasValue(0)) {
+                mTextSizes[role] = a.getDimensionPixelSize(0, 0);
+            }
+
+            String fontFamily = a.getString(1);
+            if (fontFamily != null) {
+                mAppearanceTypefaces[role] = Typeface.create(fontFamily, Typeface.NORMAL);
+            }
+        } finally {
+            a.recycle();
+        }
+    }
+
+    /**
+     * Returns the style text in 'role' is laid out with when styled
+     * by 'profile'. Returns the same object for as long as the profile's
+     * typeface settings don't change.
+     *
+     * @param role    one of TITLE, HINT, BADGE
+     * @param profile profile styling the text
+     */
+    Style getStyle(int role, TextViewStyleProfile profile) {
+        Typeface profileTypeface = profile.getTypeface();
+        int profileTypefaceStyle = profile.getTypefaceStyle();
+
+        if (mStyles[role] != null && mStyleProfiles[role] == profile
+                && mProfileTypefaces[role] == profileTypeface
+                && mProfileTypefaceStyles[role] == profileTypefaceStyle) {
+            return mStyles[role];
+        }
+
+        Style style = new Style(profileTypeface != null ?
+                profileTypeface : mAppearanceTypefaces[role], profileTypefaceStyle,
+                mTextSizes[role]);
+
+        mStyles[role] = style;
+        mStyleProfiles[role] = profile;
+        mProfileTypefaces[role] = profileTypeface;
+        mProfileTypefaceStyles[role] = profileTypefaceStyle;
+        return style;
+    }
+
+    /**
+     * Returns the width left for a row's text &amp; badge.
+     *
+     * @param contentWidth width of the row, minus its padding
+     * @param hasIcon      'true' if the row shows an icon
+     */
+    int getTextWidth(int contentWidth, boolean hasIcon) {
+        return contentWidth - (hasIcon ? mIconSize + mIconPadding : 0);
+    }
+
+    /**
+     * Returns the width of the badge showing 'badgeLayout',
+     * laid out at its natural width.
+     */
+    int getBadgeWidth(Layout badgeLayout, int textWidth) {
+        return Math.min(Math.max(textWidth, 0), Math.max(mBadgeMinWidth, badgeLayout.getWidth()));
+    }
+
+    /**
+     * Returns a layout of 'text' on a single line, 'width' pixels wide.
+     * Cached layouts are reused - others are built right away.
+     *
+     * @param width width in pixels, or NATURAL_WIDTH
+     */
+    Layout get(CharSequence text, Style style, int width) {
+        if (text instanceof Spanned) {
+            // Spans aren't part of the key
+            return makeLayout(text, getPaint(style), width);
+        }
+
+        Key key = new Key(text.toString(), style, width);
+        Layout layout = mLayouts.get(key);
+
+        if (layout == null) {
+            layout = makeLayout(text, getPaint(style), width);
+            mLayouts.put(key, layout);
+        }
+
+        return layout;
+    }
+
+    private TextPaint getPaint(Style style) {
+        TextPaint paint = mPaints.get(style);
+
+        if (paint == null) {
+            paint = style.newPaint();
+            mPaints.put(style, paint);
+        }
+
+        return paint;
+    }
+
+    /**
+     * Lays out 'text' on a single line, ellipsized at the end if it
+     * doesn't fit - as a TextView with maxLines="1" would.
+     */
+    private static Layout makeLayout(CharSequence text, TextPaint paint, int width) {
+        BoringLayout.Metrics metrics = BoringLayout.isBoring(text, paint);
+
+        if (width == NATURAL_WIDTH) {
+            width = metrics != null ? metrics.width
+                    : (int) Math.ceil(Layout.getDesiredWidth(text, paint));
+        }
+
+        width = Math.max(width, 0);
+
+        if (metrics != null) {
+            return BoringLayout.make(text, paint, width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f,
+                    metrics, false, TextUtils.TruncateAt.END, width);
+        }
+
+        // Bidi or multi-line text. Only the first line is drawn.
+        return new StaticLayout(TextUtils.ellipsize(text, paint, width, TextUtils.TruncateAt.END),
+                paint, width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+    }
+
+    //---Prefetching---//
+
+    /**
+     * Lays out the title, hint &amp; badge of flat rows for 'items' on a
+     * worker thread, for rows 'rowWidth' pixels wide styled by 'themer'.
+     * Rows whose layouts are cached already are skipped. Layouts are added
+     * to the cache on the main thread once all of them are built.
+     *
+     * @param items    items to lay out text for - other item types are skipped
+     * @param rowWidth width of the rows, including padding
+     * @param themer   themer styling the rows
+     */
+    void prefetch(List<SublimeBaseMenuItem> items, int rowWidth, SublimeThemer themer) {
+        final Style[] styles = {
+                getStyle(TITLE, themer.getItemStyleProfile()),
+                getStyle(HINT, themer.getItemHintStyleProfile()),
+                getStyle(BADGE, themer.getBadgeStyleProfile())
+        };
+        final int contentWidth = rowWidth - mRowPadding;
+        final ArrayList<PrefetchRow> rows = new ArrayList<>();
+
+        for (int i = 0, size = items.size(); i < size; i++) {
+            PrefetchRow row = PrefetchRow.of(items.get(i));
+
+            if (row != null && !isCached(row, styles, contentWidth)) {
+                rows.add(row);
+            }
+        }
+
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        // Tasks run one at a time, so a task's
+        // paints are only used by its worker
+        new AsyncTask<Void, Void, List<Pair<Key, Layout>>>() {
+            @Override
+            protected List<Pair<Key, Layout>> doInBackground(Void... params) {
+                HashMap<Style, TextPaint> paints = new HashMap<>();
+                ArrayList<Pair<Key, Layout>> layouts = new ArrayList<>();
+
+                for (int i = 0, size = rows.size(); i < size; i++) {
+                    layOutRow(rows.get(i), styles, contentWidth, paints, layouts);
+                }
+
+                return layouts;
+            }
+
+            @Override
+            protected void onPostExecute(List<Pair<Key, Layout>> layouts) {
+                for (int i = 0, size = layouts.size(); i < size; i++) {
+                    Pair<Key, Layout> entry = layouts.get(i);
+
+                    // Keep layouts built on the main thread in the meantime
+                    if (mLayouts.get(entry.first) == null) {
+                        mLayouts.put(entry.first, entry.second);
+                    }
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Returns 'true' if all layouts 'row' needs are cached. Mirrors
+     * {@link #layOutRow(PrefetchRow, Style[], int, HashMap, List)}.
+     */
+    private boolean isCached(PrefetchRow row, Style[] styles, int contentWidth) {
+        int textWidth = getTextWidth(contentWidth, row.mHasIcon);
+
+        if (row.mBadge != null) {
+            Layout badgeLayout = mLayouts.get(new Key(row.mBadge, styles[BADGE], NATURAL_WIDTH));
+
+            if (badgeLayout == null) {
+                return false;
+            }
+
+            int badgeWidth = getBadgeWidth(badgeLayout, textWidth);
+
+            if (badgeLayout.getWidth() > badgeWidth
+                    && mLayouts.get(new Key(row.mBadge, styles[BADGE], badgeWidth)) == null) {
+                return false;
+            }
+
+            textWidth -= badgeWidth;
+        }
+
+        return mLayouts.get(new Key(row.mTitle, styles[TITLE], textWidth)) != null
+                && (row.mHint == null
+                || mLayouts.get(new Key(row.mHint, styles[HINT], textWidth)) != null);
+    }
+
+    /**
+     * Builds the layouts for 'row' - the same ones
+     * {@link SublimeFlatItemView} gets when bound.
+     */
+    private void layOutRow(PrefetchRow row, Style[] styles, int contentWidth,
+                           HashMap<Style, TextPaint> paints, List<Pair<Key, Layout>> out) {
+        int textWidth = getTextWidth(contentWidth, row.mHasIcon);
+
+        if (row.mBadge != null) {
+            Layout badgeLayout = layOut(row.mBadge, styles[BADGE], NATURAL_WIDTH, paints, out);
+            int badgeWidth = getBadgeWidth(badgeLayout, textWidth);
+
+            if (badgeLayout.getWidth() > badgeWidth) {
+                layOut(row.mBadge, styles[BADGE], badgeWidth, paints, out);
+            }
+
+            textWidth -= badgeWidth;
+        }
+
+        layOut(row.mTitle, styles[TITLE], textWidth, paints, out);
+
+        if (row.mHint != null) {
+            layOut(row.mHint, styles[HINT], textWidth, paints, out);
+        }
+    }
+
+    private static Layout layOut(String text, Style style, int width,
+                                 HashMap<Style, TextPaint> paints,
+                                 List<Pair<Key, Layout>> out) {
+        TextPaint paint = paints.get(style);
+
+        if (paint == null) {
+            paint = style.newPaint();
+            paints.put(style, paint);
+        }
+
+        Layout layout = makeLayout(text, paint, width);
+        out.add(Pair.create(new Key(text, style, width), layout));
+        return layout;
+    }
+
+    /**
+     * Text of a flat row, copied on the main thread.
+     */
+    private static final class PrefetchRow {
+        String mTitle, mHint, mBadge;
+        boolean mHasIcon;
+
+        /**
+         * Returns the row for 'item', or 'null' if 'item' isn't shown
+         * as a flat row or has text that isn't cached.
+         */
+        static PrefetchRow of(SublimeBaseMenuItem item) {
+            CharSequence badge = null;
+
+            switch (item.getItemType()) {
+                case BADGE:
+                    if (item.providesValueAsync()) {
+                        return null;
+                    }
+
+                    badge = ((SublimeTextWithBadgeMenuItem) item).getBadgeText();
+                    break;
+                case TEXT:
+                    break;
+                default:
+                    return null;
+            }
+
+            CharSequence title = item.getTitle(), hint = item.getHint();
+
+            if (title instanceof Spanned || hint instanceof Spanned || badge instanceof Spanned) {
+                return null;
+            }
+
+            PrefetchRow row = new PrefetchRow();
+            row.mTitle = title != null ? title.toString() : "";
+            row.mHint = !TextUtils.isEmpty(hint) ? hint.toString() : null;
+            row.mBadge = !TextUtils.isEmpty(badge) ? badge.toString() : null;
+            row.mHasIcon = item.hasIcon();
+            return row;
+        }
+    }
+
+    /**
+     * What text is laid out with - everything in a {@link TextViewStyleProfile}
+     * &amp; text appearance that affects measuring. Colors are left out.
+     */
+    static final class Style {
+        private final Typeface mTypeface;
+        private final float mTextSize;
+        private final boolean mFakeBold;
+        private final float mTextSkewX;
+
+        /**
+         * As with TextView#setTypeface(Typeface, int), parts of
+         * 'typefaceStyle' the typeface doesn't have are faked.
+         */
+        Style(Typeface typeface, int typefaceStyle, float textSize) {
+            if (typefaceStyle > 0) {
+                typeface = typeface == null ?
+                        Typeface.defaultFromStyle(typefaceStyle)
+                        : Typeface.create(typeface, typefaceStyle);
+            }
+
+            int fakeStyle = typeface != null ?
+                    typefaceStyle & ~typeface.getStyle() : typefaceStyle;
+
+            mTypeface = typeface;
+            mTextSize = textSize;
+            mFakeBold = (fakeStyle & Typeface.BOLD) != 0;
+            mTextSkewX = (fakeStyle & Typeface.ITALIC) != 0 ? -0.25f : 0f;
+        }
+
+        TextPaint newPaint() {
+            TextPaint paint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+            paint.setTypeface(mTypeface);
+            paint.setTextSize(mTextSize);
+            paint.setFakeBoldText(mFakeBold);
+            paint.setTextSkewX(mTextSkewX);
+            return paint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Style)) return false;
+
+            Style other = (Style) o;
+            return mTypeface == other.mTypeface && mTextSize == other.mTextSize
+                    && mFakeBold == other.mFakeBold && mTextSkewX == other.mTextSkewX;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = mTypeface != null ? mTypeface.hashCode() : 0;
+            hash = 31 * hash + Float.floatToIntBits(mTextSize);
+            hash = 31 * hash + (mFakeBold ? 1 : 0);
+            return 31 * hash + Float.floatToIntBits(mTextSkewX);
+        }
+    }
+
+    private static final class Key {
+        private final String mText;
+        private final Style mStyle;
+        private final int mWidth;
+        private final int mHash;
+
+        Key(String text, Style style, int width) {
+            mText = text;
+            mStyle = style;
+            mWidth = width;
+            mHash = 31 * (31 * text.hashCode() + style.hashCode()) + width;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key other = (Key) o;
+            return mHash == other.mHash && mWidth == other.mWidth
+                    && mText.equals(other.mText) && mStyle.equals(other.mStyle);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2015 Vikram Kakkar
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.appeaser.sublimenavigationviewlibrary;
+
+import android.content.res.ColorStateList;
+import android.graphics.drawable.Drawable;
+import android.support.v4.graphics.drawable.DrawableCompat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps icon drawables that have already been wrapped, mutated and
+ * tinted, so that binding a row doesn't prepare its icon again.
+ *
+ * A prepared drawable is handed out to one row at a time - its
+ * drawable state, bounds &amp; callback belong to that row. When
+ * the row moves on to another icon, the drawable goes back to an
+ * idle list and is handed to the next row asking for the same
+ * icon, tint list &amp; size.
+ *
+ * Owned by {@link SublimeThemer}: a new themer starts with an
+ * empty cache. Only used on the main thread.
+ */
+final class TintedIconCache {
+    private static final String TAG = TintedIconCache.class.getSimpleName();
+
+    // Rows showing the same icon at once rarely exceed the
+    // number of rows that fit on screen
+    private static final int MAX_IDLE_PER_KEY = 8;
+
+    private final HashMap<Key, ArrayList<Drawable>> mIdle = new HashMap<>();
+
+    // Drawables currently shown by a row. Drawable doesn't override
+    // equals/hashCode, so lookups are by identity. Rows dropped
+    // without handing their icon back don't keep it alive.
+    private final WeakHashMap<Drawable, Key> mInUse = new WeakHashMap<>();
+
+    /**
+     * Returns a prepared drawable for 'source'. If 'current' - the
+     * drawable the row is showing right now - was prepared for
+     * the same icon, it is returned as is. Otherwise, 'current'
+     * is taken back and an idle or newly prepared drawable is
+     * returned.
+     *
+     * @param current  drawable the row shows, or null
+     * @param source   icon set on the menu item
+     * @param tintList tint list to apply
+     * @param size     icon size in pixels
+     */
+    Drawable obtain(Drawable current, Drawable source, ColorStateList tintList, int size) {
+        Key key = new Key(source, tintList, size);
+
+        if (current != null) {
+            if (key.equals(mInUse.get(current))) {
+                return current;
+            }
+
+            recycle(current);
+        }
+
+        Drawable prepared = null;
+        ArrayList<Drawable> idle = mIdle.get(key);
+        if (idle != null && !idle.isEmpty()) {
+            prepared = idle.remove(idle.size() - 1);
+        }
+
+        if (prepared == null) {
+            prepared = prepare(source, tintList, size);
+        }
+
+        mInUse.put(prepared, key);
+        return prepared;
+    }
+
+    /**
+     * Takes back a drawable handed out by
+     * {@link #obtain(Drawable, Drawable, ColorStateList, int)}.
+     * Drawables that didn't come from this cache are ignored.
+     */
+    void recycle(Drawable prepared) {
+        Key key = mInUse.remove(prepared);
+
+        if (key == null) {
+            return;
+        }
+
+        ArrayList<Drawable> idle = mIdle.get(key);
+        if (idle == null) {
+            idle = new ArrayList<>();
+            mIdle.put(key, idle);
+        }
+
+        if (idle.size() < MAX_IDLE_PER_KEY) {
+            prepared.setCallback(null);
+            idle.add(prepared);
+        }
+    }
+
+    /**
+     * Drops all idle drawables. Drawables still shown by rows
+     * are no longer recognized when handed back.
+     */
+    void clear() {
+        mIdle.clear();
+        mInUse.clear();
+    }
+
+    static Drawable prepare(Drawable source, ColorStateList tintList, int size) {
+        Drawable.ConstantState state = source.getConstantState();
+        Drawable icon = DrawableCompat.wrap(state != null ?
+                state.newDrawable() : source).mutate();
+        icon.setBounds(0, 0, size, size);
+        DrawableCompat.setTintList(icon, tintList);
+        return icon;
+    }
+
+    private static final class Key {
+        // Drawables loaded from the same resource share
+        // their constant state
+        final Object mSource;
+        final ColorStateList mTintList;
+        final int mSize;
+
+        Key(Drawable source, ColorStateList tintList, int size) {
+            Drawable.ConstantState state = source.getConstantState();
+            mSource = state != null ? state : source;
+            mTintList = tintList;
+            mSize = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+            return mSource == other.mSource
+                    && mTintList == other.mTintList
+                    && mSize == other.mSize;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(mSource);
+            result = 31 * result + System.identityHashCode(mTintList);
+            result = 31 * result + mSize;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,496 @@
+package com.appeaser.sublimenavigationviewlibrary;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link AdapterPositionIndex} against a plain list of items,
+ * visibilities &amp; hide counts. Some items are held by rows of a
+ * {@link CompactItemStore} until the index creates them.
+ */
+public class AdapterPositionIndexTest {
+    private static final int OPERATIONS = 5000;
+
+    private final Random mRandom = new Random(42);
+
+    private final AdapterPositionIndex mIndex = new AdapterPositionIndex();
+
+    private final CompactItemStore mCompactItems = new CompactItemStore();
+
+    // Items created by the index since the model was last resolved, by row
+    private final Map<Integer, SublimeBaseMenuItem> mCreated = new HashMap<>();
+
+    // The naive model, by menu position. Items held
+    // by rows are 'null', with their row in 'mRows'.
+    private final List<SublimeBaseMenuItem> mItems = new ArrayList<>();
+    private final List<Integer> mRows = new ArrayList<>();
+    private final List<Integer> mRemovedRows = new ArrayList<>();
+    private final List<Boolean> mVisible = new ArrayList<>();
+    private final List<Integer> mHideCounts = new ArrayList<>();
+
+    private int mNextId = 1;
+
+    // Position of the last insertion or removal
+    private int mLastEdit;
+
+    @Test
+    public void emptyIndex_presentsOnlyHeader() throws Exception {
+        assertEquals(0, mIndex.size());
+        assertEquals(0, mIndex.getItemCount());
+
+        mIndex.setHeader(SublimeMenu.HEADER_STUB);
+
+        assertEquals(1, mIndex.size());
+        assertSame(SublimeMenu.HEADER_STUB, mIndex.get(0));
+        assertEquals(1, mIndex.getAdapterPosition(0));
+    }
+
+    @Test
+    public void hideCount_hidesWholeRange() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            mItems.add(new Item(true));
+        }
+
+        mIndex.build(mItems, new int[10]);
+        mIndex.setHideCount(2, 8, 1);
+
+        assertEquals(4, mIndex.size());
+        assertFalse(mIndex.isShown(2));
+        assertTrue(mIndex.isShown(8));
+        assertEquals(2, mIndex.getAdapterPosition(8));
+        assertSame(mItems.get(8), mIndex.get(2));
+
+        mIndex.setHideCount(2, 8, 0);
+
+        assertEquals(10, mIndex.size());
+    }
+
+    @Test
+    public void insertion_insideHiddenRange_keepsOwnHideCount() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            insertShown(i, 0);
+        }
+
+        // Free space is now after the first item, and is
+        // covered by the range hidden next
+        mIndex.remove(1, 2);
+        removeFromModel(1);
+        mIndex.setHideCount(0, 3, 1);
+
+        SublimeBaseMenuItem inserted = insertShown(1, 0);
+
+        assertEquals(1, mIndex.size());
+        assertSame(inserted, mIndex.get(0));
+        assertTrue(mIndex.isShown(1));
+        assertFalse(mIndex.isShown(0));
+    }
+
+    @Test
+    public void rows_createItemsWhenReturned() throws Exception {
+        useCompactItems();
+
+        for (int i = 0; i < 4; i++) {
+            insertShown(i, 0);
+        }
+
+        insertRows(2, 3);
+        mIndex.setHideCount(2, 5, 0);
+        mIndex.setHideCount(0, 2, 1);
+
+        assertNull(mIndex.peek(2));
+        assertEquals(mRows.get(3).intValue(), mIndex.getRow(3));
+        assertEquals(4, mIndex.getPositionForSlot(mCompactItems.getSlot(mRows.get(4))));
+
+        // Only presented items are created
+        assertEquals(5, mIndex.toArray().length);
+        assertEquals(3, mCreated.size());
+        assertSame(mCreated.get(mRows.get(2)), mIndex.peek(2));
+        assertEquals(2, mIndex.getPositionForSlot(mIndex.peek(2).getSlot()));
+        assertEquals(-1, mIndex.getRow(2));
+    }
+
+    @Test
+    public void randomOperations_matchListModel() throws Exception {
+        useCompactItems();
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            applyRandomOperation();
+
+            // Checks push pending assignments down - a few
+            // operations in a row leave some pending.
+            if (mRandom.nextInt(4) == 0) {
+                assertMatchesModel();
+            }
+        }
+
+        assertMatchesModel();
+    }
+
+    private void applyRandomOperation() {
+        int operation = mRandom.nextInt(20);
+        int size = mItems.size();
+
+        if (operation < 6 || size == 0) {
+            // Edits tend to stay in one part of the menu
+            int position = mRandom.nextBoolean() ?
+                    Math.min(mLastEdit, size) : mRandom.nextInt(size + 1);
+            int count = 1 + (mRandom.nextInt(4) == 0 ? mRandom.nextInt(40) : 0);
+
+            if (mRandom.nextInt(3) == 0) {
+                insertRows(position, count);
+            } else {
+                insert(position, count);
+            }
+        } else if (operation < 9) {
+            int from = mRandom.nextBoolean() ?
+                    Math.min(mLastEdit, size - 1) : mRandom.nextInt(size);
+            remove(from, from + 1 + mRandom.nextInt(Math.min(8, size - from)));
+        } else if (operation < 12) {
+            int position = mRandom.nextInt(size);
+            boolean visible = mRandom.nextBoolean();
+
+            // The menu creates an item before changing it
+            mIndex.getMenuItems().get(position);
+            resolveCreatedItems();
+
+            ((Item) mItems.get(position)).mShown = visible;
+            mVisible.set(position, visible);
+            mIndex.setVisible(position, visible);
+        } else if (operation < 16) {
+            int from = mRandom.nextInt(size);
+            int to = from + 1 + mRandom.nextInt(size - from);
+            int hideCount = mRandom.nextInt(3) == 0 ?
+                    mRandom.nextInt(AdapterPositionIndex.MAX_HIDE_COUNT + 1) : 0;
+
+            for (int position = from; position < to; position++) {
+                mHideCounts.set(position, hideCount);
+            }
+
+            mIndex.setHideCount(from, to, hideCount);
+        } else if (operation < 17) {
+            removePositions();
+        } else if (operation < 18) {
+            mIndex.setHeader(mIndex.hasHeader() ? null : SublimeMenu.HEADER_STUB);
+        } else if (operation < 19) {
+            int[] hideCounts = new int[size];
+
+            for (int position = 0; position < size; position++) {
+                hideCounts[position] = mHideCounts.get(position);
+            }
+
+            if (mItems.contains(null)) {
+                mIndex.rebuild(hideCounts);
+            } else {
+                mIndex.build(new ArrayList<>(mItems), hideCounts);
+            }
+        } else if (mRandom.nextInt(10) == 0) {
+            mIndex.reset();
+            mCompactItems.clear();
+            mItems.clear();
+            mRows.clear();
+            mVisible.clear();
+            mHideCounts.clear();
+        }
+    }
+
+    private void insert(int position, int count) {
+        List<SublimeBaseMenuItem> items = new ArrayList<>();
+        int[] hideCounts = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            boolean visible = mRandom.nextInt(4) != 0;
+            SublimeBaseMenuItem item = new Item(visible);
+            hideCounts[i] = mRandom.nextInt(4) == 0 ? 1 : 0;
+
+            items.add(item);
+            mItems.add(position + i, item);
+            mRows.add(position + i, -1);
+            mVisible.add(position + i, visible);
+            mHideCounts.add(position + i, hideCounts[i]);
+        }
+
+        if (count == 1) {
+            mIndex.insert(position, items.get(0), hideCounts[0]);
+        } else {
+            mIndex.insert(position, items, hideCounts);
+        }
+
+        mLastEdit = position + count;
+    }
+
+    /**
+     * Inserts 'count' items held by rows, which are visible.
+     */
+    private void insertRows(int position, int count) {
+        int[] rows = new int[count];
+        int[] hideCounts = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            rows[i] = mCompactItems.add(mNextId++, SublimeMenu.NO_GROUP_ID,
+                    SublimeBaseMenuItem.ItemType.TEXT, "Row", null, null, false);
+            hideCounts[i] = mRandom.nextInt(4) == 0 ? 1 : 0;
+
+            mItems.add(position + i, null);
+            mRows.add(position + i, rows[i]);
+            mVisible.add(position + i, true);
+            mHideCounts.add(position + i, hideCounts[i]);
+        }
+
+        mIndex.insertRows(position, rows, hideCounts);
+        mLastEdit = position + count;
+    }
+
+    private SublimeBaseMenuItem insertShown(int position, int hideCount) {
+        SublimeBaseMenuItem item = new Item(true);
+        mItems.add(position, item);
+        mRows.add(position, -1);
+        mVisible.add(position, true);
+        mHideCounts.add(position, hideCount);
+        mIndex.insert(position, item, hideCount);
+        return item;
+    }
+
+    private void useCompactItems() {
+        mIndex.setCompactItems(mCompactItems, new AdapterPositionIndex.ItemFactory() {
+            @Override
+            public SublimeBaseMenuItem createItem(int row) {
+                SublimeBaseMenuItem item = new Item(true);
+                mCompactItems.remove(row);
+                assertNull(mCreated.put(row, item));
+                return item;
+            }
+        });
+    }
+
+    /**
+     * Replaces rows of the model with the items created for them.
+     */
+    private void resolveCreatedItems() {
+        for (int position = 0; position < mItems.size(); position++) {
+            SublimeBaseMenuItem item = mCreated.get(mRows.get(position));
+
+            if (mItems.get(position) == null && item != null) {
+                mItems.set(position, item);
+                mRows.set(position, -1);
+            }
+        }
+
+        mCreated.clear();
+    }
+
+    private void remove(int from, int to) {
+        List<SublimeBaseMenuItem> removed = new ArrayList<>();
+
+        for (int position = to - 1; position >= from; position--) {
+            removed.add(removeFromModel(position));
+        }
+
+        mIndex.remove(from, to);
+        assertReleased(removed);
+        mLastEdit = from;
+        freeRemovedRows();
+    }
+
+    private void removePositions() {
+        List<SublimeBaseMenuItem> removed = new ArrayList<>();
+        BitSet positions = new BitSet();
+
+        for (int position = mItems.size() - 1; position >= 0; position--) {
+            if (mRandom.nextInt(5) == 0) {
+                positions.set(position);
+                removed.add(removeFromModel(position));
+            }
+        }
+
+        mIndex.removePositions(positions);
+        assertReleased(removed);
+        freeRemovedRows();
+    }
+
+    private static void assertReleased(List<SublimeBaseMenuItem> removed) {
+        for (SublimeBaseMenuItem item : removed) {
+            if (item != null) {
+                assertEquals(-1, item.getSlot());
+            }
+        }
+    }
+
+    /**
+     * Removes the item at 'position' from the model. Its row, if
+     * any, is freed by {@link #freeRemovedRows()}.
+     */
+    private SublimeBaseMenuItem removeFromModel(int position) {
+        int row = mRows.remove(position);
+
+        if (row != -1) {
+            mRemovedRows.add(row);
+        }
+
+        mVisible.remove(position);
+        mHideCounts.remove(position);
+        return mItems.remove(position);
+    }
+
+    /**
+     * Frees the rows of removed items, as the owner of the
+     * store does once the index has removed them.
+     */
+    private void freeRemovedRows() {
+        for (int row : mRemovedRows) {
+            mCompactItems.remove(row);
+        }
+
+        mRemovedRows.clear();
+    }
+
+    private void assertMatchesModel() {
+        final int size = mItems.size();
+
+        // Rows are where the model has them, without creating their items
+        for (int position = 0; position < size; position++) {
+            int row = mRows.get(position);
+
+            if (row != -1) {
+                assertNull(mIndex.peek(position));
+                assertEquals(row, mIndex.getRow(position));
+                assertEquals(position, mIndex.getPositionForSlot(mCompactItems.getSlot(row)));
+            }
+        }
+
+        assertTrue(mCreated.isEmpty());
+
+        // The first query may create items
+        probeRandomQuery();
+        resolveCreatedItems();
+
+        // Creates the presented items
+        Object[] array = mIndex.toArray();
+        resolveCreatedItems();
+
+        List<SublimeBaseMenuItem> presented = new ArrayList<>();
+        int[] adapterPositions = new int[size + 1];
+
+        if (mIndex.hasHeader()) {
+            presented.add(SublimeMenu.HEADER_STUB);
+        }
+
+        for (int position = 0; position < size; position++) {
+            adapterPositions[position] = presented.size();
+
+            if (isShown(position)) {
+                presented.add(mItems.get(position));
+            }
+        }
+
+        adapterPositions[size] = presented.size();
+
+        assertFalse(presented.contains(null));
+        assertArrayEquals(presented.toArray(), array);
+
+        assertEquals(size, mIndex.getItemCount());
+        assertEquals(size, mIndex.getMenuItems().size());
+
+        for (int position = 0; position < size; position++) {
+            mIndex.getMenuItems().get(position);
+        }
+
+        resolveCreatedItems();
+        assertEquals(mItems, mIndex.getMenuItems());
+        assertEquals(presented.size(), mIndex.size());
+
+        for (int adapterPosition = 0; adapterPosition < presented.size(); adapterPosition++) {
+            assertSame(presented.get(adapterPosition), mIndex.get(adapterPosition));
+        }
+
+        for (int position = 0; position < size; position++) {
+            assertEquals(adapterPositions[position], mIndex.getAdapterPosition(position));
+            assertEquals(isShown(position), mIndex.isShown(position));
+            assertEquals(mVisible.get(position), mIndex.isVisibleAt(position));
+            assertEquals(position, mIndex.getPositionForSlot(mItems.get(position).getSlot()));
+        }
+    }
+
+    /**
+     * Each query pushes pending assignments down on its own path -
+     * the first one checked sees the most of them. Checked against
+     * the model directly, as it may create the item it returns.
+     */
+    private void probeRandomQuery() {
+        final int size = mItems.size();
+
+        if (size == 0) return;
+
+        int position = mRandom.nextInt(size);
+        int to = position + mRandom.nextInt(size - position + 1);
+        int shownBefore = countShownInModel(0, position);
+
+        switch (mRandom.nextInt(4)) {
+            case 0:
+                if (isShown(position)) {
+                    int adapterPosition = (mIndex.hasHeader() ? 1 : 0) + shownBefore;
+                    SublimeBaseMenuItem item = mIndex.get(adapterPosition);
+                    SublimeBaseMenuItem expected = mItems.get(position);
+
+                    assertSame(expected != null ? expected : mCreated.get(mRows.get(position)), item);
+                }
+                break;
+            case 1:
+                assertEquals(isShown(position), mIndex.isShown(position));
+                break;
+            case 2:
+                assertEquals(countShownInModel(position, to), mIndex.countShown(position, to));
+                break;
+            default:
+                assertEquals(mVisible.get(position), mIndex.isVisibleAt(position));
+                break;
+        }
+    }
+
+    private int countShownInModel(int from, int to) {
+        int shown = 0;
+
+        for (int position = from; position < to; position++) {
+            if (isShown(position)) {
+                shown++;
+            }
+        }
+
+        return shown;
+    }
+
+    private boolean isShown(int position) {
+        return mVisible.get(position) && mHideCounts.get(position) == 0;
+    }
+
+    /**
+     * Item with its own visibility, as items without a parent
+     * menu can't be hidden.
+     */
+    private class Item extends SublimeBaseMenuItem {
+        boolean mShown;
+
+        Item(boolean visible) {
+            super(null, SublimeMenu.NO_GROUP_ID, mNextId++, "Item", null,
+                    ItemType.TEXT, false, false);
+            mShown = visible;
+        }
+
+        @Override
+        public boolean isVisible() {
+            return mShown;
+        }
+
+        @Override
+        public boolean invoke() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.appeaser.sublimenavigationviewlibrary;
+
+import com.appeaser.sublimenavigationviewlibrary.SublimeMenu.Change;
+import com.appeaser.sublimenavigationviewlibrary.SublimeMenu.Change.ChangeType;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Exact results of {@link Change#coalesce(List)} for short sequences
+ * of changes.
+ */
+public class ChangeCoalesceTest {
+
+    @Test
+    public void adjacentInsertions_becomeRange() throws Exception {
+        assertCoalesced(changes(inserted(3), inserted(4), inserted(3)),
+                change(ChangeType.RANGE_INSERTED, 3, 3));
+    }
+
+    @Test
+    public void distantInsertions_stayApart() throws Exception {
+        assertCoalesced(changes(inserted(3), inserted(10)),
+                change(ChangeType.ITEM_INSERTED, 3, -1),
+                change(ChangeType.ITEM_INSERTED, 10, -1));
+    }
+
+    @Test
+    public void changeToInsertedItem_isDropped() throws Exception {
+        assertCoalesced(changes(change(ChangeType.RANGE_INSERTED, 3, 2),
+                changed(4, Change.PAYLOAD_TITLE)),
+                change(ChangeType.RANGE_INSERTED, 3, 2));
+    }
+
+    @Test
+    public void removalOfInsertedItem_cancelsOut() throws Exception {
+        assertCoalesced(changes(inserted(5), removed(5)));
+    }
+
+    @Test
+    public void removalWithinInsertedRange_shrinksRange() throws Exception {
+        assertCoalesced(changes(change(ChangeType.RANGE_INSERTED, 5, 3), removed(6)),
+                change(ChangeType.RANGE_INSERTED, 5, 2));
+    }
+
+    @Test
+    public void cancelledInsertion_letsPreviousChangeMerge() throws Exception {
+        assertCoalesced(changes(inserted(1), inserted(5), removed(5), inserted(2)),
+                change(ChangeType.RANGE_INSERTED, 1, 2));
+    }
+
+    @Test
+    public void adjacentRemovals_becomeRange() throws Exception {
+        // Removing at the same position, then just before it
+        assertCoalesced(changes(removed(4), removed(4), removed(3)),
+                change(ChangeType.RANGE_REMOVED, 3, 3));
+    }
+
+    @Test
+    public void removalThenInsertion_stayApart() throws Exception {
+        assertCoalesced(changes(removed(3), inserted(3)),
+                change(ChangeType.ITEM_REMOVED, 3, -1),
+                change(ChangeType.ITEM_INSERTED, 3, -1));
+    }
+
+    @Test
+    public void touchingContentChanges_becomeRange() throws Exception {
+        assertCoalesced(changes(changed(2, Change.PAYLOAD_TITLE), changed(4, Change.PAYLOAD_TITLE),
+                changed(3, Change.PAYLOAD_ICON)),
+                change(ChangeType.RANGE_CHANGED, 2, 3)
+                        .setPayload(Change.PAYLOAD_TITLE | Change.PAYLOAD_ICON));
+    }
+
+    @Test
+    public void repeatedContentChanges_areSortedAndMerged() throws Exception {
+        assertCoalesced(changes(changed(5, Change.PAYLOAD_TITLE), changed(2, Change.PAYLOAD_ICON),
+                changed(5, Change.PAYLOAD_CHECKED)),
+                change(ChangeType.ITEM_CHANGED, 2, -1).setPayload(Change.PAYLOAD_ICON),
+                change(ChangeType.ITEM_CHANGED, 5, -1)
+                        .setPayload(Change.PAYLOAD_TITLE | Change.PAYLOAD_CHECKED));
+    }
+
+    @Test
+    public void unknownPayload_bindsAfresh() throws Exception {
+        assertCoalesced(changes(changed(2, Change.PAYLOAD_TITLE), changed(3, 0)),
+                change(ChangeType.RANGE_CHANGED, 2, 2));
+    }
+
+    @Test
+    public void contentChanges_areNotSortedAcrossInsertions() throws Exception {
+        assertCoalesced(changes(changed(5, Change.PAYLOAD_TITLE), inserted(0),
+                changed(1, Change.PAYLOAD_TITLE)),
+                change(ChangeType.ITEM_CHANGED, 5, -1).setPayload(Change.PAYLOAD_TITLE),
+                change(ChangeType.ITEM_INSERTED, 0, -1),
+                change(ChangeType.ITEM_CHANGED, 1, -1).setPayload(Change.PAYLOAD_TITLE));
+    }
+
+    @Test
+    public void moves_areKept() throws Exception {
+        Change move = new Change(ChangeType.ITEM_MOVED, -1, 2, 6, -1);
+
+        assertCoalesced(changes(inserted(1), move, inserted(2)),
+                change(ChangeType.ITEM_INSERTED, 1, -1),
+                move,
+                change(ChangeType.ITEM_INSERTED, 2, -1));
+    }
+
+    private static void assertCoalesced(List<Change> changes, Change... expected) {
+        Change.coalesce(changes);
+
+        assertEquals(describe(Arrays.asList(expected)), describe(changes));
+    }
+
+    private static String describe(List<Change> changes) {
+        StringBuilder sb = new StringBuilder();
+
+        for (Change change : changes) {
+            sb.append(change.getChangeType())
+                    .append(" at ").append(change.getAffectedPosition())
+                    .append(" x").append(change.getNumberOfAffectedItems())
+                    .append(" from ").append(change.getMovedFromPosition())
+                    .append(" to ").append(change.getMovedToPosition())
+                    .append(" payload ").append(change.getPayload())
+                    .append('\n');
+        }
+
+        return sb.toString();
+    }
+
+    private static List<Change> changes(Change... changes) {
+        return new ArrayList<>(Arrays.asList(changes));
+    }
+
+    private static Change change(ChangeType type, int position, int count) {
+        return new Change(type, position, -1, -1, count);
+    }
+
+    private static Change inserted(int position) {
+        return change(ChangeType.ITEM_INSERTED, position, -1);
+    }
+
+    private static Change removed(int position) {
+        return change(ChangeType.ITEM_REMOVED, position, -1);
+    }
+
+    private static Change changed(int position, int payload) {
+        return change(ChangeType.ITEM_CHANGED, position, -1).setPayload(payload);
+    }
+}
@@ -0,0 +1,120 @@
+package com.appeaser.sublimenavigationviewlibrary;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link CompactItemStore} against a {@link HashMap} of rows.
+ */
+public class CompactItemStoreTest {
+    private static final int OPERATIONS = 20000;
+
+    @Test
+    public void add_recordsRow() throws Exception {
+        CompactItemStore store = new CompactItemStore();
+        int row = store.add(7, 3, SublimeBaseMenuItem.ItemType.BADGE,
+                "Title", "Hint", "12", true);
+
+        assertEquals(row, store.findRow(7));
+        assertEquals(7, store.getId(row));
+        assertEquals(3, store.getGroupId(row));
+        assertEquals(SublimeBaseMenuItem.ItemType.BADGE, store.getItemType(row));
+        assertEquals("Title", store.getTitle(row));
+        assertEquals("Hint", store.getHint(row));
+        assertEquals("12", store.getBadgeText(row));
+        assertTrue(store.showsIconSpace(row));
+        assertEquals(-1, store.getSlot(row));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void remove_reusesRow() throws Exception {
+        CompactItemStore store = new CompactItemStore();
+
+        for (int id = 1; id <= 4; id++) {
+            store.add(id, SublimeMenu.NO_GROUP_ID, SublimeBaseMenuItem.ItemType.TEXT,
+                    null, null, null, false);
+        }
+
+        store.remove(store.findRow(2));
+        store.remove(store.findRow(4));
+
+        assertEquals(-1, store.findRow(2));
+        assertEquals(2, store.size());
+
+        // Most recently freed first
+        assertEquals(3, store.add(5, SublimeMenu.NO_GROUP_ID,
+                SublimeBaseMenuItem.ItemType.TEXT, null, null, null, false));
+        assertEquals(1, store.add(6, SublimeMenu.NO_GROUP_ID,
+                SublimeBaseMenuItem.ItemType.TEXT, null, null, null, false));
+        assertEquals(4, store.getRowCount());
+    }
+
+    @Test
+    public void randomOperations_matchHashMap() throws Exception {
+        Random random = new Random(42);
+        CompactItemStore store = new CompactItemStore();
+
+        // Per ID: group ID, type ordinal & slot of its row
+        Map<Integer, int[]> expected = new HashMap<>();
+        List<Integer> ids = new ArrayList<>();
+        SublimeBaseMenuItem.ItemType[] types = SublimeBaseMenuItem.ItemType.values();
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            int operation = random.nextInt(10);
+
+            if (operation < 5 || ids.isEmpty()) {
+                // Resource IDs share their high bits
+                int id = random.nextBoolean() ? 1 + random.nextInt(4096)
+                        : 0x7f0a0000 + random.nextInt(4096);
+
+                if (expected.containsKey(id)) continue;
+
+                int groupId = random.nextInt(8) - 1;
+                int type = random.nextInt(types.length);
+                int row = store.add(id, groupId, types[type], "t" + id, null, null,
+                        random.nextBoolean());
+
+                expected.put(id, new int[]{groupId, type, -1});
+                ids.add(id);
+                assertEquals(row, store.findRow(id));
+            } else if (operation < 8) {
+                int id = ids.remove(random.nextInt(ids.size()));
+                store.remove(store.findRow(id));
+                expected.remove(id);
+                assertEquals(-1, store.findRow(id));
+            } else if (operation < 9) {
+                int id = ids.get(random.nextInt(ids.size()));
+                int slot = random.nextInt(1 << 20);
+                store.setSlot(store.findRow(id), slot);
+                expected.get(id)[2] = slot;
+            } else {
+                store.ensureCapacity(store.size() + random.nextInt(256));
+            }
+
+            assertEquals(expected.size(), store.size());
+        }
+
+        for (Map.Entry<Integer, int[]> entry : expected.entrySet()) {
+            int row = store.findRow(entry.getKey());
+
+            assertEquals(entry.getKey().intValue(), store.getId(row));
+            assertEquals(entry.getValue()[0], store.getGroupId(row));
+            assertEquals(types[entry.getValue()[1]], store.getItemType(row));
+            assertEquals(entry.getValue()[2], store.getSlot(row));
+            assertEquals("t" + entry.getKey(), store.getTitle(row));
+        }
+
+        store.clear();
+
+        assertEquals(0, store.size());
+        assertEquals(-1, store.findRow(ids.get(0)));
+    }
+}
@@ -0,0 +1,101 @@
+package com.appeaser.sublimenavigationviewlibrary;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link IdAllocator} always hands out the lowest free ID.
+ */
+public class IdAllocatorTest {
+    private static final int OPERATIONS = 20000;
+
+    @Test
+    public void allocate_startsAtOne() throws Exception {
+        IdAllocator allocator = new IdAllocator();
+
+        assertEquals(1, allocator.allocate());
+        assertEquals(2, allocator.allocate());
+        assertEquals(3, allocator.allocate());
+    }
+
+    @Test
+    public void allocate_skipsUsedIds() throws Exception {
+        IdAllocator allocator = new IdAllocator();
+        allocator.markUsed(1);
+        allocator.markUsed(3);
+
+        assertEquals(2, allocator.allocate());
+        assertEquals(4, allocator.allocate());
+    }
+
+    @Test
+    public void release_makesIdAvailableAgain() throws Exception {
+        IdAllocator allocator = new IdAllocator();
+
+        for (int i = 0; i < 10; i++) {
+            allocator.allocate();
+        }
+
+        allocator.release(4);
+        allocator.release(8);
+
+        assertEquals(4, allocator.allocate());
+        assertEquals(8, allocator.allocate());
+        assertEquals(11, allocator.allocate());
+    }
+
+    @Test
+    public void untrackedIds_areIgnored() throws Exception {
+        IdAllocator allocator = new IdAllocator();
+        allocator.markUsed(-1);
+        allocator.markUsed(0);
+        allocator.markUsed(IdAllocator.MAX_TRACKED_ID + 1);
+        allocator.release(IdAllocator.MAX_TRACKED_ID + 1);
+
+        assertEquals(1, allocator.allocate());
+    }
+
+    @Test
+    public void reset_freesAllIds() throws Exception {
+        IdAllocator allocator = new IdAllocator();
+        allocator.allocate();
+        allocator.markUsed(5);
+        allocator.reset();
+
+        assertEquals(1, allocator.allocate());
+    }
+
+    @Test
+    public void randomOperations_returnLowestFreeId() throws Exception {
+        Random random = new Random(42);
+        IdAllocator allocator = new IdAllocator();
+        TreeSet<Integer> used = new TreeSet<>();
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            int operation = random.nextInt(10);
+
+            if (operation < 5) {
+                int expected = 1;
+
+                while (used.contains(expected)) {
+                    expected++;
+                }
+
+                assertEquals(expected, allocator.allocate());
+                used.add(expected);
+            } else if (operation < 8) {
+                int id = 1 + random.nextInt(used.size() + 16);
+                allocator.release(id);
+                used.remove(id);
+            } else {
+                int id = 1 + random.nextInt(used.size() + 16);
+                allocator.markUsed(id);
+                used.add(id);
+            }
+        }
+    }
+}
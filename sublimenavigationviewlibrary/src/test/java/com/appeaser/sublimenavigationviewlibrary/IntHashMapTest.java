@@ -0,0 +1,95 @@
+package com.appeaser.sublimenavigationviewlibrary;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link IntHashMap} against {@link HashMap}.
+ */
+public class IntHashMapTest {
+    private static final int OPERATIONS = 20000;
+
+    @Test
+    public void put_replacesExistingValue() throws Exception {
+        IntHashMap<String> map = new IntHashMap<>();
+        map.put(7, "a");
+        map.put(7, "b");
+
+        assertEquals("b", map.get(7));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void remove_keepsCollidingKeysReachable() throws Exception {
+        // Resource IDs share their high bits
+        IntHashMap<Integer> map = new IntHashMap<>();
+
+        for (int i = 0; i < 64; i++) {
+            map.put(0x7f0a0000 + i, i);
+        }
+
+        for (int i = 0; i < 64; i += 2) {
+            assertEquals(Integer.valueOf(i), map.remove(0x7f0a0000 + i));
+        }
+
+        assertEquals(32, map.size());
+
+        for (int i = 0; i < 64; i++) {
+            assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), map.get(0x7f0a0000 + i));
+        }
+    }
+
+    @Test
+    public void clear_removesAllMappings() throws Exception {
+        IntHashMap<String> map = new IntHashMap<>(4);
+        map.put(1, "a");
+        map.put(2, "b");
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(1));
+        assertNull(map.get(2));
+    }
+
+    @Test
+    public void randomOperations_matchHashMap() throws Exception {
+        Random random = new Random(42);
+        IntHashMap<Integer> map = new IntHashMap<>();
+        HashMap<Integer, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            // Small key range, so that keys are removed & re-added
+            int key = random.nextInt(512) - 64;
+            int operation = random.nextInt(10);
+
+            if (operation < 5) {
+                map.put(key, i);
+                expected.put(key, i);
+            } else if (operation < 8) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else if (operation < 9) {
+                map.ensureCapacity(expected.size() + random.nextInt(256));
+            } else {
+                assertEquals(expected.containsKey(key), map.containsKey(key));
+            }
+
+            assertEquals(expected.size(), map.size());
+        }
+
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+
+        for (Integer key : new ArrayList<>(expected.keySet())) {
+            assertEquals(expected.remove(key), map.remove(key));
+        }
+
+        assertEquals(0, map.size());
+    }
+}
@@ -0,0 +1,273 @@
+package com.appeaser.sublimenavigationviewlibrary;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Applies the changes computed by {@link MenuDiffer} to a plain list of
+ * rows, and checks that the result is the new list.
+ */
+public class MenuDifferTest {
+    private static final int RUNS = 2000;
+
+    // Row inserted by a change
+    private static final int INSERTED = -1;
+
+    private final Random mRandom = new Random(42);
+
+    @Test
+    public void sameRows_noChanges() throws Exception {
+        List<SublimeMenu.Change> changes = MenuDiffer.diff(
+                new int[]{1, 2, 3}, new int[]{10, 20, 30},
+                new int[]{1, 2, 3}, new int[]{10, 20, 30});
+
+        assertEquals(0, changes.size());
+    }
+
+    @Test
+    public void adjacentRemovals_becomeOneRange() throws Exception {
+        List<SublimeMenu.Change> changes = MenuDiffer.diff(
+                new int[]{1, 2, 3, 4}, new int[]{10, 20, 30, 40},
+                new int[]{1, 4}, new int[]{10, 40});
+
+        assertEquals(1, changes.size());
+        assertChange(changes.get(0), SublimeMenu.Change.ChangeType.RANGE_REMOVED, 1, 2);
+    }
+
+    @Test
+    public void swappedRows_becomeOneMove() throws Exception {
+        List<SublimeMenu.Change> changes = MenuDiffer.diff(
+                new int[]{1, 2, 3}, new int[]{10, 20, 30},
+                new int[]{1, 3, 2}, new int[]{10, 30, 20});
+
+        assertEquals(1, changes.size());
+        assertEquals(SublimeMenu.Change.ChangeType.ITEM_MOVED, changes.get(0).getChangeType());
+    }
+
+    @Test
+    public void insertionAndContentChange_useFinalPositions() throws Exception {
+        List<SublimeMenu.Change> changes = MenuDiffer.diff(
+                new int[]{1, 2}, new int[]{10, 20},
+                new int[]{5, 1, 2}, new int[]{50, 10, 21});
+
+        assertEquals(2, changes.size());
+        assertChange(changes.get(0), SublimeMenu.Change.ChangeType.ITEM_INSERTED, 0, -1);
+        assertChange(changes.get(1), SublimeMenu.Change.ChangeType.ITEM_CHANGED, 2, -1);
+    }
+
+    @Test
+    public void duplicateKeys_cannotBeMatched() throws Exception {
+        assertNull(MenuDiffer.diff(new int[]{1, 1}, new int[]{0, 0},
+                new int[]{1}, new int[]{0}));
+        assertNull(MenuDiffer.diff(new int[]{1}, new int[]{0},
+                new int[]{2, 2}, new int[]{0, 0}));
+    }
+
+    @Test
+    public void randomLists_changesProduceNewList() throws Exception {
+        for (int run = 0; run < RUNS; run++) {
+            int oldSize = mRandom.nextInt(40);
+            int[] oldKeys = distinctKeys(oldSize);
+            int[] oldHashes = hashes(oldSize);
+
+            // Keep some rows, in a shuffled order, & add new ones
+            List<Integer> keys = new ArrayList<>();
+            List<Integer> hashes = new ArrayList<>();
+
+            for (int i = 0; i < oldSize; i++) {
+                if (mRandom.nextInt(4) != 0) {
+                    keys.add(oldKeys[i]);
+                    hashes.add(mRandom.nextInt(5) == 0 ? oldHashes[i] + 1 : oldHashes[i]);
+                }
+            }
+
+            shuffleSome(keys, hashes);
+
+            for (int key = 1000, added = mRandom.nextInt(10); key < 1000 + added; key++) {
+                int at = mRandom.nextInt(keys.size() + 1);
+                keys.add(at, key);
+                hashes.add(at, mRandom.nextInt());
+            }
+
+            int[] newKeys = toArray(keys);
+            int[] newHashes = toArray(hashes);
+
+            assertDiffProducesNewList(oldKeys, oldHashes, newKeys, newHashes);
+        }
+    }
+
+    private void assertDiffProducesNewList(int[] oldKeys, int[] oldHashes,
+                                           int[] newKeys, int[] newHashes) {
+        List<SublimeMenu.Change> changes = MenuDiffer.diff(oldKeys, oldHashes,
+                newKeys, newHashes);
+
+        // Rows hold the key they show
+        List<Integer> rows = new ArrayList<>();
+        List<Boolean> changed = new ArrayList<>();
+
+        for (int key : oldKeys) {
+            rows.add(key);
+            changed.add(false);
+        }
+
+        int moves = 0, phase = 0;
+
+        for (SublimeMenu.Change change : changes) {
+            int position = change.getAffectedPosition();
+            int count = Math.max(1, change.getNumberOfAffectedItems());
+
+            switch (change.getChangeType()) {
+                case ITEM_REMOVED:
+                case RANGE_REMOVED:
+                    assertEquals("Removal after other changes", 0, phase);
+
+                    for (int i = 0; i < count; i++) {
+                        rows.remove(position);
+                        changed.remove(position);
+                    }
+                    break;
+                case ITEM_INSERTED:
+                case RANGE_INSERTED:
+                    assertTrue("Insertion after content changes", phase <= 1);
+                    phase = 1;
+
+                    for (int i = 0; i < count; i++) {
+                        rows.add(position, INSERTED);
+                        changed.add(position, false);
+                    }
+                    break;
+                case ITEM_MOVED:
+                    assertTrue("Move after content changes", phase <= 1);
+                    phase = 1;
+                    moves++;
+
+                    int from = change.getMovedFromPosition();
+                    int to = change.getMovedToPosition();
+                    rows.add(to, rows.remove(from));
+                    changed.add(to, changed.remove(from));
+                    break;
+                case ITEM_CHANGED:
+                case RANGE_CHANGED:
+                    phase = 2;
+
+                    for (int i = position; i < position + count; i++) {
+                        assertFalse("Row changed twice", changed.get(i));
+                        changed.set(i, true);
+                    }
+                    break;
+                default:
+                    fail("Unexpected change: " + change.getChangeType());
+            }
+        }
+
+        assertEquals(newKeys.length, rows.size());
+
+        List<Integer> keptTargets = new ArrayList<>();
+
+        for (int j = 0; j < newKeys.length; j++) {
+            int oldPosition = indexOf(oldKeys, newKeys[j]);
+
+            if (oldPosition == -1) {
+                assertEquals(INSERTED, (int) rows.get(j));
+                assertFalse(changed.get(j));
+            } else {
+                assertEquals(newKeys[j], (int) rows.get(j));
+                assertEquals(oldHashes[oldPosition] != newHashes[j], changed.get(j));
+                keptTargets.add(oldPosition);
+            }
+        }
+
+        // Rows on a longest increasing subsequence stay put
+        assertEquals(keptTargets.size() - longestIncreasingSubsequence(keptTargets), moves);
+    }
+
+    private static void assertChange(SublimeMenu.Change change,
+                                     SublimeMenu.Change.ChangeType type,
+                                     int position, int count) {
+        assertEquals(type, change.getChangeType());
+        assertEquals(position, change.getAffectedPosition());
+        assertEquals(count, change.getNumberOfAffectedItems());
+    }
+
+    /**
+     * Swaps a few rows, so that most rows keep their order.
+     */
+    private void shuffleSome(List<Integer> keys, List<Integer> hashes) {
+        if (keys.size() < 2) return;
+
+        for (int swaps = mRandom.nextInt(keys.size() / 2 + 1); swaps > 0; swaps--) {
+            int i = mRandom.nextInt(keys.size()), j = mRandom.nextInt(keys.size());
+            Collections.swap(keys, i, j);
+            Collections.swap(hashes, i, j);
+        }
+    }
+
+    private int[] distinctKeys(int size) {
+        int[] keys = new int[size];
+
+        for (int i = 0, key = 0; i < size; i++) {
+            key += 1 + mRandom.nextInt(3);
+            keys[i] = key;
+        }
+
+        return keys;
+    }
+
+    private int[] hashes(int size) {
+        int[] hashes = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            hashes[i] = mRandom.nextInt();
+        }
+
+        return hashes;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+
+        return array;
+    }
+
+    private static int indexOf(int[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the length of the longest increasing subsequence, in O(n^2).
+     */
+    private static int longestIncreasingSubsequence(List<Integer> values) {
+        int[] lengths = new int[values.size()];
+        int longest = 0;
+
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = 1;
+
+            for (int j = 0; j < i; j++) {
+                if (values.get(j) < values.get(i)) {
+                    lengths[i] = Math.max(lengths[i], lengths[j] + 1);
+                }
+            }
+
+            longest = Math.max(longest, lengths[i]);
+        }
+
+        return longest;
+    }
+}